@@ -0,0 +1,52 @@
+package study.querydsl.benchmark;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import study.querydsl.QuerydslApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 벤치마크용 스프링 컨텍스트
+ * 매번 새로운 in-memory H2를 띄우고, SQL 로그/p6spy는 끈 상태로 실행한다. (로그 출력이 측정값을 왜곡하지 않도록)
+ */
+public final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(Map<String, String> extraProperties) {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.profiles.active=bench", // local 프로파일의 InitMember가 실행되지 않도록
+                "--spring.main.web-application-type=none",
+                "--spring.main.banner-mode=off",
+                "--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--spring.jpa.properties.hibernate.use_sql_comments=false",
+                "--decorator.datasource.enabled=false",
+                "--logging.level.root=warn",
+                "--logging.level.org.hibernate.SQL=warn",
+                "--logging.level.org.hibernate.type=warn"
+        ));
+        extraProperties.forEach((key, value) -> args.add("--" + key + "=" + value));
+        return SpringApplication.run(QuerydslApplication.class, args.toArray(new String[0]));
+    }
+
+    public static ConfigurableApplicationContext start() {
+        return start(Map.of());
+    }
+
+    // JPA를 거치지 않고 H2에서 직접 대량 데이터를 만든다. (member i는 team (i % teamCount) + 1 에 속하고 나이는 0 ~ 99)
+    public static void seed(ConfigurableApplicationContext context, int memberCount, int teamCount) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("insert into team (id, name) select x, concat('team', x) from system_range(1, ?)", teamCount);
+        jdbcTemplate.update("insert into member (member_id, username, age, team_id) " +
+                "select x, concat('member', x), mod(x, 100), mod(x, ?) + 1 from system_range(1, ?)", teamCount, memberCount);
+        jdbcTemplate.execute("analyze");
+    }
+}
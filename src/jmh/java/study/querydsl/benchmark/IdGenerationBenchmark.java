@@ -0,0 +1,65 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 동시 insert 처리량 - 시퀀스 할당 크기(increment_size)에 따른 차이
+ * incrementSize=1 은 insert마다 시퀀스를 조회하던 이전 방식과 같은 비용이다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(4)
+public class IdGenerationBenchmark {
+
+    private static final int MEMBERS_PER_TRANSACTION = 100;
+
+    @Param({"1", "50"})
+    int incrementSize;
+
+    private ConfigurableApplicationContext context;
+    private EntityManager em;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(Map.of(
+                "spring.jpa.properties.querydsl.id.member_seq.increment-size", String.valueOf(incrementSize)));
+        em = context.getBean(EntityManager.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MEMBERS_PER_TRANSACTION)
+    public void persistMembers() {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < MEMBERS_PER_TRANSACTION; i++) {
+                em.persist(new Member("member" + i, i));
+            }
+        });
+    }
+}
@@ -0,0 +1,126 @@
+package study.querydsl.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.QMember;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberTestRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 회원 검색 경로별 벤치마크
+ *
+ * 데이터 양은 -p 옵션으로 바꿀 수 있다.
+ * ex) java -jar build/libs/querydsl-0.0.1-SNAPSHOT-jmh.jar MemberSearchBenchmark -p memberCount=1000000 -p teamCount=100
+ * 기본은 count 캐시와 2차/쿼리 캐시를 끈 상태로 쿼리 자체를 측정한다. (-p caches=true 로 캐시를 켠 상태와 비교)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime}) // SampleTime : p50, p90, p99 ... latency 분포
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MemberSearchBenchmark {
+
+    @Param({"10000", "1000000"})
+    int memberCount;
+
+    @Param({"10"})
+    int teamCount;
+
+    @Param({"0", "100"})
+    int page;
+
+    @Param({"false"})
+    boolean caches; // 두 번째 반복부터 count/엔티티가 캐시에서 나오면 content vs count 비교가 되지 않는다
+
+    private ConfigurableApplicationContext context;
+    private MemberJpaRepository memberJpaRepository;
+    private MemberRepository memberRepository;
+    private MemberTestRepository memberTestRepository;
+
+    private MemberSearchCondition condition;
+    private PageRequest pageRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(Map.of(
+                "querydsl.count-cache.enabled", String.valueOf(caches),
+                "querydsl.result-cache.enabled", String.valueOf(caches),
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache", String.valueOf(caches),
+                "spring.jpa.properties.hibernate.cache.use_query_cache", String.valueOf(caches)));
+        BenchmarkApplication.seed(context, memberCount, teamCount);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        memberRepository = context.getBean(MemberRepository.class);
+        memberTestRepository = context.getBean(MemberTestRepository.class);
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("team1");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(40);
+        pageRequest = PageRequest.of(page, 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> search() {
+        return memberJpaRepository.search(condition);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByBuilder() {
+        return memberJpaRepository.searchByBuilder(condition);
+    }
+
+    // search와 같은 쿼리 - Querydsl 식 트리 생성/직렬화 없이 미리 만들어 둔 JPQL을 사용
+    @Benchmark
+    public List<MemberTeamDto> searchByTemplate() {
+        return memberJpaRepository.searchByTemplate(condition);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageSimple() {
+        return memberRepository.searchPageSimple(condition, pageRequest);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPageComplex() {
+        return memberRepository.searchPageComplex(condition, pageRequest);
+    }
+
+    @Benchmark
+    public Page<Member> applyPagination() {
+        return memberTestRepository.applyPagination(condition, pageRequest);
+    }
+
+    @Benchmark
+    public Page<Member> applyPagination2() {
+        return memberTestRepository.applyPagination2(condition, pageRequest);
+    }
+
+    @Benchmark
+    public Page<Member> querydslPredicateExecutor() {
+        QMember member = QMember.member;
+        return memberRepository.findAll(
+                member.team.name.eq("team1").and(member.age.between(20, 40)), pageRequest);
+    }
+}
@@ -0,0 +1,76 @@
+package study.querydsl.benchmark;
+
+import org.hibernate.annotations.QueryHints;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 큰 페이지의 엔티티 조회 - 쓰기 트랜잭션(스냅샷 + 커밋 시 dirty checking) vs 읽기 전용(readOnly 트랜잭션 + READ_ONLY 힌트)
+ * 요청당 메모리는 gc 프로파일러의 gc.alloc.rate.norm (bytes/op)으로 비교한다.
+ * 2차 캐시에 넣는 비용이 섞이지 않도록 2차 캐시는 끄고 실행한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReadOnlyQueryBenchmark {
+
+    private static final int MEMBER_COUNT = 100_000;
+    private static final int TEAM_COUNT = 10;
+
+    @Param({"1000", "10000"})
+    int pageSize;
+
+    @Param({"false", "true"})
+    boolean readOnly;
+
+    private ConfigurableApplicationContext context;
+    private EntityManager em;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(Map.of(
+                "spring.jpa.properties.hibernate.cache.use_second_level_cache", "false",
+                "spring.jpa.properties.hibernate.cache.use_query_cache", "false"));
+        BenchmarkApplication.seed(context, MEMBER_COUNT, TEAM_COUNT);
+        em = context.getBean(EntityManager.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        transactionTemplate.setReadOnly(readOnly);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int loadMemberPage() {
+        return transactionTemplate.execute(status -> {
+            TypedQuery<Member> query = em.createQuery("select m from Member m join fetch m.team order by m.id", Member.class)
+                    .setMaxResults(pageSize);
+            if (readOnly) {
+                query.setHint(QueryHints.READ_ONLY, true);
+            }
+            List<Member> members = query.getResultList();
+            return members.size();
+        });
+    }
+}
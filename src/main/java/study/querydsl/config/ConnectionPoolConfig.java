@@ -0,0 +1,44 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * 커넥션 풀 크기 자동 설정 (querydsl.pool.auto-size=true)
+ *
+ * pool size = CPU 코어 수 * 2 + effective spindle count (디스크 I/O를 동시에 처리할 수 있는 수)
+ * 커넥션을 더 늘려도 DB에서 동시에 처리할 수 있는 양은 늘지 않고 context switching, lock 경합만 늘어난다.
+ * 풀이 부족해서 느린지는 hikaricp.connections.pending, hikaricp.connections.acquire 지표로 확인한다.
+ */
+@Slf4j
+@Configuration
+public class ConnectionPoolConfig {
+
+    @Bean
+    public static BeanPostProcessor hikariPoolSizingPostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource) {
+                    applyPoolSize((HikariDataSource) bean, environment);
+                }
+                return bean;
+            }
+        };
+    }
+
+    // 라우팅 DataSource처럼 빈으로 등록되지 않는 풀은 직접 호출한다.
+    public static void applyPoolSize(HikariDataSource dataSource, Environment environment) {
+        if (!environment.getProperty("querydsl.pool.auto-size", Boolean.class, false)) {
+            return;
+        }
+        int spindles = environment.getProperty("querydsl.pool.effective-spindle-count", Integer.class, 1);
+        int poolSize = Runtime.getRuntime().availableProcessors() * 2 + spindles;
+        dataSource.setMaximumPoolSize(poolSize);
+        log.info("connection pool {} maximum-pool-size={}", dataSource.getPoolName(), poolSize);
+    }
+}
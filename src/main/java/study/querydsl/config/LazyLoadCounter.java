@@ -0,0 +1,46 @@
+package study.querydsl.config;
+
+/**
+ * 현재 스레드에서 발생한 지연 로딩(프록시 초기화, 컬렉션 초기화) 횟수
+ *
+ * start() ~ stop() 사이에 실제로 DB 조회가 필요했던 지연 로딩만 센다. (batch fetch로 이미 로딩된 엔티티, 2차 캐시에 있는 엔티티/컬렉션은 제외)
+ * start(limit)로 시작하면 limit을 넘는 순간 지연 로딩을 실행한 쪽에서 예외가 발생한다. (응답을 쓰기 전에 요청을 실패시키기 위함)
+ * 요청 단위는 LazyLoadDetectionConfig의 lazyLoadDetectionFilter 빈, 테스트에서는 직접 start()/stop()을 호출해서 N+1을 확인한다.
+ */
+public final class LazyLoadCounter {
+
+    private static final ThreadLocal<long[]> COUNT = new ThreadLocal<>(); // {횟수, limit}
+
+    private LazyLoadCounter() {
+    }
+
+    public static void start() {
+        start(Long.MAX_VALUE);
+    }
+
+    public static void start(long limit) {
+        COUNT.set(new long[]{0, limit});
+    }
+
+    static boolean isActive() {
+        return COUNT.get() != null;
+    }
+
+    public static long current() {
+        long[] count = COUNT.get();
+        return count == null ? 0 : count[0];
+    }
+
+    public static long stop() {
+        long count = current();
+        COUNT.remove();
+        return count;
+    }
+
+    static void increment() {
+        long[] count = COUNT.get();
+        if (count != null && ++count[0] > count[1]) {
+            throw new IllegalStateException(String.format("N+1 의심 : 지연 로딩 %d회 (threshold %d)", count[0], count[1]));
+        }
+    }
+}
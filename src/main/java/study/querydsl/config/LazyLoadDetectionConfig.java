@@ -0,0 +1,82 @@
+package study.querydsl.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * N+1 감지
+ *
+ * querydsl.n-plus-one.enabled=true 이면 하이버네이트 이벤트 리스너로 지연 로딩 횟수를 세고(LazyLoadCounter),
+ * 요청마다 threshold를 넘었을 때 로그를 남기거나(fail=false) 예외를 던진다(fail=true).
+ * fail=true 이면 threshold를 넘는 지연 로딩에서 바로 예외가 발생하므로 응답이 나가기 전에 요청이 실패한다.
+ */
+@Slf4j
+@Configuration
+public class LazyLoadDetectionConfig {
+
+    private static final String INTEGRATOR_PROVIDER = "hibernate.integrator_provider";
+
+    @Bean
+    @ConditionalOnProperty(name = "querydsl.n-plus-one.enabled", havingValue = "true")
+    public HibernatePropertiesCustomizer lazyLoadListenerCustomizer() {
+        return properties -> properties.put(INTEGRATOR_PROVIDER,
+                (IntegratorProvider) () -> List.of(new LazyLoadIntegrator()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "querydsl.n-plus-one.enabled", havingValue = "true")
+    public OncePerRequestFilter lazyLoadDetectionFilter(@Value("${querydsl.n-plus-one.threshold:10}") long threshold,
+                                                        @Value("${querydsl.n-plus-one.fail:false}") boolean fail) {
+        return new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+                    throws ServletException, IOException {
+                LazyLoadCounter.start(fail ? threshold : Long.MAX_VALUE);
+                long lazyLoads;
+                try {
+                    filterChain.doFilter(request, response);
+                } finally {
+                    lazyLoads = LazyLoadCounter.stop();
+                }
+                if (lazyLoads > threshold) {
+                    log.warn("N+1 의심 : {} {} 요청에서 지연 로딩 {}회 (threshold {})",
+                            request.getMethod(), request.getRequestURI(), lazyLoads, threshold);
+                }
+            }
+        };
+    }
+
+    static class LazyLoadIntegrator implements Integrator {
+
+        @Override
+        public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+            EventListenerRegistry registry = serviceRegistry.getService(EventListenerRegistry.class);
+            LazyLoadEventListener listener = new LazyLoadEventListener();
+            registry.prependListeners(EventType.LOAD, listener); // 기본 리스너가 로딩하기 전에 영속성 컨텍스트, 2차 캐시를 확인해야 한다
+            registry.prependListeners(EventType.INIT_COLLECTION, listener);
+        }
+
+        @Override
+        public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package study.querydsl.config;
+
+import org.hibernate.HibernateException;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.LoadEvent;
+import org.hibernate.event.spi.LoadEventListener;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+
+// 지연 로딩 중 영속성 컨텍스트, 2차 캐시에 없어서 DB 조회가 필요한 경우만 LazyLoadCounter에 기록
+// (기본 리스너보다 먼저 실행되어야 로딩 전 상태를 확인할 수 있다)
+class LazyLoadEventListener implements LoadEventListener, InitializeCollectionEventListener {
+
+    @Override
+    public void onLoad(LoadEvent event, LoadType loadType) throws HibernateException {
+        if (loadType != IMMEDIATE_LOAD || !LazyLoadCounter.isActive()) { // 세는 중일 때 프록시 초기화만 대상
+            return;
+        }
+        EventSource session = event.getSession();
+        EntityPersister persister = session.getFactory().getMetamodel().entityPersister(event.getEntityClassName());
+        EntityKey key = session.generateEntityKey(event.getEntityId(), persister);
+        if (session.getPersistenceContextInternal().getEntity(key) != null) {
+            return;
+        }
+        if (persister.canReadFromCache() && session.getCacheMode().isGetEnabled()
+                && session.getFactory().getCache().containsEntity(persister.getEntityName(), event.getEntityId())) {
+            return;
+        }
+        LazyLoadCounter.increment();
+    }
+
+    @Override
+    public void onInitializeCollection(InitializeCollectionEvent event) throws HibernateException {
+        if (!LazyLoadCounter.isActive()) { // 이미 초기화된 컬렉션은 이벤트가 발생하지 않는다
+            return;
+        }
+        EventSource session = event.getSession();
+        PersistentCollection collection = event.getCollection();
+        CollectionPersister persister = session.getFactory().getMetamodel().collectionPersister(collection.getRole());
+        if (persister.hasCache() && session.getCacheMode().isGetEnabled()
+                && session.getFactory().getCache().containsCollection(collection.getRole(), collection.getKey())) {
+            return;
+        }
+        LazyLoadCounter.increment();
+    }
+}
@@ -0,0 +1,112 @@
+package study.querydsl.config;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import study.querydsl.repository.MemberSearchQueries;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 회원 검색 인덱스 진단 (GET /actuator/indexadvisor, H2 전용, perf 프로파일)
+ *
+ * 검색 조건 조합(shape)별 JPQL을 하이버네이트가 만드는 SQL로 바꾼 뒤 예시 파라미터로 H2 EXPLAIN을 실행하고,
+ * 실행 계획에 tableScan이 남아있는 shape와 테이블, shape별로 사용한 인덱스를 알려준다. (조건이 없는 shape는 전체 조회라 제외)
+ */
+@Profile("perf")
+@Component
+@Endpoint(id = "indexadvisor")
+public class MemberIndexAdvisor {
+
+    private static final Pattern PARAMETER = Pattern.compile(":(username|teamName|ageGoe|ageLoe)\\b");
+    private static final Pattern TABLE_SCAN = Pattern.compile("(\\w+)\\.(\\w+)\\.tableScan");
+    private static final Pattern INDEX = Pattern.compile("/\\*\\s*(\\w+)\\.(\\w+):"); // ex) /* PUBLIC.IDX_TEAM_NAME: NAME = ?1 */
+    private static final Map<String, Object> SAMPLE_VALUES = Map.of(
+            "username", "member1",
+            "teamName", "teamA",
+            "ageGoe", 10,
+            "ageLoe", 40);
+
+    private final SessionFactoryImplementor sessionFactory;
+    private final JdbcTemplate jdbcTemplate;
+
+    public MemberIndexAdvisor(EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @ReadOperation
+    public Map<String, Object> report() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"H2".equalsIgnoreCase(database)) {
+            report.put("error", "H2에서만 지원합니다: " + database);
+            return report;
+        }
+
+        List<Map<String, Object>> shapes = new ArrayList<>();
+        List<Integer> scanningShapes = new ArrayList<>();
+        for (int shape = 1; shape < MemberSearchQueries.SHAPE_COUNT; shape++) {
+            Map<String, Object> result = explain(shape);
+            if (!((Set<?>) result.get("tableScans")).isEmpty()) {
+                scanningShapes.add(shape);
+            }
+            shapes.add(result);
+        }
+        report.put("scanningShapes", scanningShapes);
+        report.put("shapes", shapes);
+        return report;
+    }
+
+    private Map<String, Object> explain(int shape) {
+        String jpql = MemberSearchQueries.dtoJpql(shape);
+        List<String> parameters = new ArrayList<>();
+        Matcher parameterMatcher = PARAMETER.matcher(jpql);
+        while (parameterMatcher.find()) {
+            parameters.add(parameterMatcher.group(1)); // SQL의 ? 순서는 JPQL에 나온 순서와 같다
+        }
+        String sql = sessionFactory.getQueryPlanCache()
+                .getHQLQueryPlan(jpql, false, Collections.emptyMap())
+                .getSqlStrings()[0];
+
+        String plan = String.join("\n", jdbcTemplate.query("explain " + sql, ps -> {
+            for (int i = 0; i < parameters.size(); i++) {
+                ps.setObject(i + 1, SAMPLE_VALUES.get(parameters.get(i)));
+            }
+        }, (rs, rowNum) -> rs.getString(1)));
+
+        Set<String> tableScans = new LinkedHashSet<>();
+        Matcher scanMatcher = TABLE_SCAN.matcher(plan);
+        while (scanMatcher.find()) {
+            tableScans.add(scanMatcher.group(2).toLowerCase());
+        }
+
+        Set<String> indexes = new LinkedHashSet<>();
+        Matcher indexMatcher = INDEX.matcher(plan);
+        while (indexMatcher.find()) {
+            indexes.add(indexMatcher.group(2).toLowerCase());
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("shape", shape);
+        result.put("conditions", parameters);
+        result.put("tableScans", tableScans);
+        result.put("indexes", indexes);
+        result.put("plan", plan);
+        return result;
+    }
+}
@@ -0,0 +1,40 @@
+package study.querydsl.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 읽기 전용 replica 설정 (querydsl.datasource)
+ * username/password/driver를 지정하지 않으면 spring.datasource(primary)의 값을 사용한다.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("querydsl.datasource")
+public class ReplicaDataSourceProperties {
+
+    private boolean routing = false;
+    private Selection selection = Selection.ROUND_ROBIN;
+    // 회원/팀 데이터가 바뀐 뒤 이 시간 동안은 읽기 전용 트랜잭션도 primary에서 읽는다. (복제 지연보다 길게)
+    // replica의 이전 데이터가 결과 캐시, ETag에 새 버전으로 저장되지 않도록 하기 위함
+    private Duration primaryAfterWrite = Duration.ofSeconds(1);
+    private List<Replica> replicas = new ArrayList<>();
+
+    public enum Selection {
+        ROUND_ROBIN, // 순서대로 돌아가며 선택
+        LEAST_LATENCY // 커넥션 획득 시간(이동 평균)이 가장 짧은 replica를 선택
+    }
+
+    @Getter
+    @Setter
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+    }
+}
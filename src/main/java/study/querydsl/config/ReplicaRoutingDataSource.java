@@ -0,0 +1,98 @@
+package study.querydsl.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 읽기 전용 트랜잭션(@Transactional(readOnly = true))은 replica로, 나머지는 primary로 보내는 DataSource
+ *
+ * 트랜잭션 시작 시점에는 아직 readOnly 여부가 동기화되지 않기 때문에
+ * LazyConnectionDataSourceProxy로 감싸서 첫 쿼리를 실행할 때 커넥션을 가져오도록 해야 한다.
+ * 데이터가 바뀐 직후(primaryAfterWrite가 true)에는 읽기 전용 트랜잭션도 primary로 보낸다. (replica 복제 지연)
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private final List<String> replicaKeys = new ArrayList<>();
+    private final Map<String, LatencyTrackingDataSource> replicas = new HashMap<>();
+    private final ReplicaDataSourceProperties.Selection selection;
+    private final BooleanSupplier primaryAfterWrite;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicaDataSources,
+                                    ReplicaDataSourceProperties.Selection selection, BooleanSupplier primaryAfterWrite) {
+        this.selection = selection;
+        this.primaryAfterWrite = primaryAfterWrite;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicaDataSources.size(); i++) {
+            String key = "replica-" + i;
+            LatencyTrackingDataSource replica = new LatencyTrackingDataSource(replicaDataSources.get(i));
+            replicaKeys.add(key);
+            replicas.put(key, replica);
+            targets.put(key, replica);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicaKeys.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || primaryAfterWrite.getAsBoolean()) {
+            return PRIMARY;
+        }
+        if (selection == ReplicaDataSourceProperties.Selection.LEAST_LATENCY) {
+            return leastLatencyReplica();
+        }
+        return replicaKeys.get(Math.floorMod(next.getAndIncrement(), replicaKeys.size()));
+    }
+
+    // 아직 한 번도 사용하지 않은 replica(0)가 먼저 선택된다.
+    private String leastLatencyReplica() {
+        String selected = replicaKeys.get(0);
+        long min = Long.MAX_VALUE;
+        for (String key : replicaKeys) {
+            long latency = replicas.get(key).averageNanos.get();
+            if (latency < min) {
+                min = latency;
+                selected = key;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 커넥션 획득 시간의 지수 이동 평균을 기록한다. (풀 대기 + 네트워크 지연이 큰 replica를 피하기 위함)
+     */
+    private static class LatencyTrackingDataSource extends DelegatingDataSource {
+
+        private final AtomicLong averageNanos = new AtomicLong();
+
+        LatencyTrackingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            long start = System.nanoTime();
+            Connection connection = super.getConnection();
+            long elapsed = System.nanoTime() - start;
+            averageNanos.updateAndGet(average -> average == 0 ? elapsed : (average * 4 + elapsed) / 5);
+            return connection;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package study.querydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+import study.querydsl.repository.support.DataVersion;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * querydsl.datasource.routing=true 이면 spring.datasource(primary) + querydsl.datasource.replicas로 라우팅 DataSource를 만든다.
+ * 모든 풀에 spring.datasource.hikari 설정과 풀 크기 자동 설정(ConnectionPoolConfig)을 똑같이 적용한다.
+ * 빈으로 등록되지 않은 풀이라 자동으로 지표가 등록되지 않으므로 풀마다 hikaricp.* 지표를 직접 등록한다. (pool 태그로 구분)
+ *
+ * replica는 복제 지연이 있으므로 방금 쓴 데이터를 바로 읽어야 하는 곳은 읽기 전용 트랜잭션을 사용하면 안 된다.
+ * 회원/팀 데이터 버전(DataVersion)이 올라간 뒤 primary-after-write 동안은 모든 조회를 primary로 보낸다.
+ * (결과 캐시와 ETag가 새 버전에 replica의 이전 데이터를 담지 않도록, 복제 지연이 이 시간보다 길면 막을 수 없다)
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicaDataSourceProperties.class)
+@ConditionalOnProperty(name = "querydsl.datasource.routing", havingValue = "true")
+public class ReplicaRoutingDataSourceConfig {
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties primaryProperties, ReplicaDataSourceProperties replicaProperties,
+                                 DataVersion dataVersion, Environment environment,
+                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        HikariDataSource primary = primaryProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        configurePool(primary, "primary", environment, meterRegistry);
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (ReplicaDataSourceProperties.Replica replica : replicaProperties.getReplicas()) {
+            HikariDataSource replicaDataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(replica.getUrl())
+                    .username(StringUtils.hasText(replica.getUsername()) ? replica.getUsername() : primaryProperties.determineUsername())
+                    .password(replica.getPassword() != null ? replica.getPassword() : primaryProperties.determinePassword())
+                    .driverClassName(StringUtils.hasText(replica.getDriverClassName())
+                            ? replica.getDriverClassName() : primaryProperties.determineDriverClassName())
+                    .build();
+            configurePool(replicaDataSource, "replica-" + replicas.size(), environment, meterRegistry);
+            replicaDataSource.setReadOnly(true);
+            replicas.add(replicaDataSource);
+        }
+
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(primary, replicas,
+                replicaProperties.getSelection(), () -> dataVersion.changedWithin(replicaProperties.getPrimaryAfterWrite()));
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    private static void configurePool(HikariDataSource dataSource, String poolName, Environment environment,
+                                      ObjectProvider<MeterRegistry> meterRegistry) {
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setPoolName(poolName);
+        ConnectionPoolConfig.applyPoolSize(dataSource, environment);
+        meterRegistry.ifAvailable(dataSource::setMetricRegistry); // 풀이 시작되기 전(첫 커넥션 요청 전)에 설정해야 한다
+    }
+}
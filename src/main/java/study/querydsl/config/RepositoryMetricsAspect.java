@@ -0,0 +1,111 @@
+package study.querydsl.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import study.querydsl.repository.MemberRepository;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 리포지토리 메서드별 지표 (repository.method : 실행 시간, repository.rows : 조회 row 수)
+ *
+ * querydsl.metrics.enabled=true 일 때만 빈으로 등록되기 때문에, 꺼져 있으면 프록시 자체가 만들어지지 않는다.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "querydsl.metrics.enabled", havingValue = "true")
+public class RepositoryMetricsAspect {
+
+    private final MeterRegistry registry;
+    private final Map<Method, RepositoryMeters> meters = new ConcurrentHashMap<>();
+
+    public RepositoryMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    // @Repository 클래스(MemberJpaRepository, MemberTestRepository) + spring data jpa 리포지토리(MemberRepository)
+    @Around("@within(org.springframework.stereotype.Repository) || this(study.querydsl.repository.MemberRepository)")
+    public Object record(ProceedingJoinPoint joinPoint) throws Throwable {
+        RepositoryMeters repositoryMeters = meters.computeIfAbsent(
+                ((MethodSignature) joinPoint.getSignature()).getMethod(), method -> createMeters(joinPoint, method));
+
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Object result = joinPoint.proceed();
+            success = true;
+            int rows = rows(result);
+            if (rows >= 0) {
+                repositoryMeters.rows.record(rows);
+            }
+            return result;
+        } finally {
+            (success ? repositoryMeters.success : repositoryMeters.error).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private RepositoryMeters createMeters(ProceedingJoinPoint joinPoint, Method method) {
+        String repository = joinPoint.getThis() instanceof MemberRepository
+                ? MemberRepository.class.getSimpleName()
+                : ClassUtils.getUserClass(joinPoint.getTarget()).getSimpleName();
+        return new RepositoryMeters(
+                timer(repository, method.getName(), "success"),
+                timer(repository, method.getName(), "error"),
+                DistributionSummary.builder("repository.rows")
+                        .description("리포지토리 메서드가 반환한 row 수")
+                        .tag("repository", repository)
+                        .tag("method", method.getName())
+                        .register(registry));
+    }
+
+    private Timer timer(String repository, String method, String outcome) {
+        return Timer.builder("repository.method")
+                .description("리포지토리 메서드 실행 시간")
+                .tag("repository", repository)
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    // 반환 타입으로 row 수를 알 수 있는 경우만 기록 (-1 : 기록하지 않음)
+    private static int rows(Object result) {
+        if (result instanceof Slice) { // Page 포함
+            return ((Slice<?>) result).getNumberOfElements();
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        return -1;
+    }
+
+    private static class RepositoryMeters {
+        private final Timer success;
+        private final Timer error;
+        private final DistributionSummary rows;
+
+        private RepositoryMeters(Timer success, Timer error, DistributionSummary rows) {
+            this.success = success;
+            this.error = error;
+            this.rows = rows;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package study.querydsl.config;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 느린 쿼리 top-N (GET /actuator/slowqueries?top=20, DELETE 로 집계 초기화)
+ */
+@Component
+@Endpoint(id = "slowqueries")
+@ConditionalOnProperty(name = "querydsl.sql-trace.enabled", havingValue = "true")
+public class SlowQueryEndpoint {
+
+    private static final int DEFAULT_TOP = 20;
+
+    private final SqlTraceListener sqlTraceListener;
+
+    public SlowQueryEndpoint(SqlTraceListener sqlTraceListener) {
+        this.sqlTraceListener = sqlTraceListener;
+    }
+
+    @ReadOperation
+    public Map<String, Object> slowQueries(@Nullable Integer top) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("sampleRate", sqlTraceListener.getSampleRate());
+        report.put("slowThresholdMillis", sqlTraceListener.getSlowThresholdMillis());
+        report.put("droppedFingerprints", sqlTraceListener.getDropped());
+        report.put("queries", sqlTraceListener.top(top != null ? top : DEFAULT_TOP));
+        return report;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        sqlTraceListener.reset();
+    }
+}
@@ -0,0 +1,183 @@
+package study.querydsl.config;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 샘플링 SQL 추적 (p6spy 리스너, querydsl.sql-trace.enabled=true)
+ *
+ * 모든 쿼리를 로그로 남기는 대신 sample-rate 비율의 쿼리와 slow-threshold-ms를 넘는 쿼리만 기록한다.
+ * 리터럴/in절 파라미터 개수를 지운 SQL(fingerprint)별로 메모리에 집계한다.
+ * 느린 쿼리의 파라미터 값은 include-values=true 일 때만 로그/집계에 남긴다. (기본은 ?로 된 SQL)
+ * 평균은 샘플링된 쿼리로만 계산한다. (느린 쿼리는 항상 기록되므로 섞으면 평균이 실제보다 커진다)
+ * 집계 결과는 /actuator/slowqueries 로 확인한다. (SlowQueryEndpoint)
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "querydsl.sql-trace.enabled", havingValue = "true")
+public class SqlTraceListener extends SimpleJdbcEventListener {
+
+    private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final double sampleRate;
+    private final long slowThresholdNanos;
+    private final int maxFingerprints;
+    private final boolean includeValues;
+    private final ConcurrentMap<String, SqlStats> stats = new ConcurrentHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+
+    public SqlTraceListener(@Value("${querydsl.sql-trace.sample-rate:0.01}") double sampleRate,
+                            @Value("${querydsl.sql-trace.slow-threshold-ms:100}") long slowThresholdMillis,
+                            @Value("${querydsl.sql-trace.max-fingerprints:1000}") int maxFingerprints,
+                            @Value("${querydsl.sql-trace.include-values:false}") boolean includeValues) {
+        this.sampleRate = sampleRate;
+        this.includeValues = includeValues;
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.maxFingerprints = maxFingerprints;
+    }
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        boolean slow = timeElapsedNanos >= slowThresholdNanos;
+        boolean sampled = ThreadLocalRandom.current().nextDouble() < sampleRate; // 느린 쿼리도 같은 비율로만 평균에 포함
+        if (!slow && !sampled) {
+            return; // 샘플링되지 않은 쿼리는 SQL 문자열도 만들지 않는다
+        }
+        String fingerprint = fingerprint(statementInformation.getSql());
+        SqlStats sqlStats = stats.get(fingerprint);
+        if (sqlStats == null) {
+            if (stats.size() >= maxFingerprints) {
+                dropped.increment(); // 메모리가 계속 늘어나지 않도록 fingerprint 수를 제한한다
+                return;
+            }
+            sqlStats = stats.computeIfAbsent(fingerprint, SqlStats::new);
+        }
+        if (sampled) {
+            sqlStats.recordSampled(timeElapsedNanos);
+        }
+        if (slow) {
+            String sql = includeValues ? statementInformation.getSqlWithValues() : statementInformation.getSql();
+            sqlStats.recordSlow(timeElapsedNanos, sql);
+            log.warn("slow query {}ms : {}", TimeUnit.NANOSECONDS.toMillis(timeElapsedNanos), sql);
+        }
+    }
+
+    public List<SqlStats> top(int limit) {
+        return stats.values().stream()
+                .sorted(Comparator.comparingLong(SqlStats::getMaxNanos).reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public long getSlowThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowThresholdNanos);
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public void reset() {
+        stats.clear();
+        dropped.reset();
+    }
+
+    static String fingerprint(String sql) {
+        String normalized = COMMENT.matcher(sql).replaceAll(" ");
+        normalized = STRING_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = IN_LIST.matcher(normalized).replaceAll("(?)");
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim().toLowerCase();
+    }
+
+    public static class SqlStats {
+
+        private final String fingerprint;
+        private final LongAdder sampledCount = new LongAdder();
+        private final LongAdder sampledNanos = new LongAdder();
+        private final LongAdder slowCount = new LongAdder();
+        private final LongAdder slowNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private volatile String slowestSql;
+
+        SqlStats(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        void recordSampled(long elapsedNanos) {
+            sampledCount.increment();
+            sampledNanos.add(elapsedNanos);
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+        }
+
+        void recordSlow(long elapsedNanos, String sql) {
+            slowCount.increment();
+            slowNanos.add(elapsedNanos);
+            if (maxNanos.accumulateAndGet(elapsedNanos, Math::max) == elapsedNanos) {
+                slowestSql = sql;
+            }
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public long getSampledCount() {
+            return sampledCount.sum();
+        }
+
+        public long getSlowCount() {
+            return slowCount.sum();
+        }
+
+        // 샘플링된 쿼리의 평균
+        public double getAverageMillis() {
+            return averageMillis(sampledNanos.sum(), sampledCount.sum());
+        }
+
+        // 느린 쿼리의 평균
+        public double getSlowAverageMillis() {
+            return averageMillis(slowNanos.sum(), slowCount.sum());
+        }
+
+        private static double averageMillis(long nanos, long count) {
+            return count == 0 ? 0 : nanos / (double) count / 1_000_000;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / 1_000_000.0;
+        }
+
+        long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public String getSlowestSql() {
+            return slowestSql;
+        }
+    }
+}
@@ -1,15 +1,25 @@
 package study.querydsl.controller;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
 
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Profile("local")
 @Component
@@ -25,24 +35,97 @@ public class InitMember {
         initMemberService.init();
     }
 
+    @Slf4j
     @Component
     static class InitMemberService {
 
         @PersistenceContext
         private EntityManager em;
 
-        @Transactional
+        private final TransactionTemplate transactionTemplate;
+        private final int memberCount;
+        private final int teamCount;
+        private final int batchSize;
+        private final int chunkSize;
+        private final int parallelism;
+
+        // 부하 테스트용으로 수백만 건을 넣을 때는 init.* 설정만 바꾸면 된다.
+        InitMemberService(PlatformTransactionManager transactionManager,
+                          @Value("${init.member-count:100}") int memberCount,
+                          @Value("${init.team-count:2}") int teamCount,
+                          @Value("${init.batch-size:1000}") int batchSize,
+                          @Value("${init.chunk-size:100000}") int chunkSize,
+                          @Value("${init.parallelism:1}") int parallelism) {
+            Assert.isTrue(memberCount >= 0, "init.member-count must not be negative: " + memberCount);
+            Assert.isTrue(teamCount >= 0, "init.team-count must not be negative: " + teamCount); // 0이면 팀 없는 회원만 저장
+            Assert.isTrue(batchSize > 0, "init.batch-size must be greater than 0: " + batchSize);
+            Assert.isTrue(chunkSize > 0, "init.chunk-size must be greater than 0: " + chunkSize);
+            Assert.isTrue(parallelism > 0, "init.parallelism must be greater than 0: " + parallelism);
+            this.transactionTemplate = new TransactionTemplate(transactionManager);
+            this.memberCount = memberCount;
+            this.teamCount = teamCount;
+            this.batchSize = batchSize;
+            this.chunkSize = chunkSize;
+            this.parallelism = parallelism;
+        }
+
         public void init() {
-            Team teamA = new Team("teamA");
-            Team teamB = new Team("teamB");
-            em.persist(teamA);
-            em.persist(teamB);
-
-            for (int i = 0; i < 100; i++) {
-                Team selectedTeam = i % 2 == 0 ? teamA : teamB;
-                em.persist(new Member("member" + i, i, selectedTeam));
+            long start = System.currentTimeMillis();
+            List<Long> teamIds = transactionTemplate.execute(status -> persistTeams());
+
+            // chunk(=트랜잭션) 단위로 나눠서 저장, parallelism > 1 이면 여러 chunk를 동시에 저장한다.
+            ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int from = 0; from < memberCount; from += chunkSize) {
+                    int to = Math.min(from + chunkSize, memberCount);
+                    int chunkFrom = from;
+                    futures.add(executor.submit(() ->
+                            transactionTemplate.executeWithoutResult(status -> persistMembers(teamIds, chunkFrom, to))));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("초기 데이터 저장이 중단되었습니다.", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("초기 데이터 저장에 실패했습니다.", e.getCause());
+            } finally {
+                executor.shutdown();
+            }
+            log.info("init members={} teams={} in {}ms", memberCount, teamCount, System.currentTimeMillis() - start);
+        }
+
+        private List<Long> persistTeams() {
+            List<Long> teamIds = new ArrayList<>();
+            for (int i = 0; i < teamCount; i++) {
+                Team team = new Team(teamName(i));
+                em.persist(team);
+                teamIds.add(team.getId());
+            }
+            return teamIds;
+        }
+
+        private void persistMembers(List<Long> teamIds, int from, int to) {
+            for (int i = from; i < to; i++) {
+                // 연관관계 주인 쪽(Member.team)만 세팅 - team.members 컬렉션을 로딩하거나 계속 쌓지 않도록
+                Member member = new Member("member" + i, i % 100);
+                if (!teamIds.isEmpty()) {
+                    member.setTeam(em.getReference(Team.class, teamIds.get(i % teamIds.size())));
+                }
+                em.persist(member);
+
+                if ((i - from + 1) % batchSize == 0) {
+                    // hibernate.jdbc.batch_size 단위로 insert를 보내고, 영속성 컨텍스트를 비워 메모리를 일정하게 유지
+                    em.flush();
+                    em.clear();
+                }
             }
         }
 
+        private static String teamName(int index) {
+            return index < 26 ? "team" + (char) ('A' + index) : "team" + index; // teamA, teamB, ...
+        }
     }
 }
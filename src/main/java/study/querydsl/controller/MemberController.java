@@ -1,14 +1,32 @@
 package study.querydsl.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import study.querydsl.dto.MemberCursor;
 import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberSliceDto;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.repository.MemberJpaRepository;
 import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.MemberSearchCache;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -17,19 +35,113 @@ public class MemberController {
 
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final MemberSearchCache memberSearchCache; // 결과 캐시 + 동시에 들어온 같은 조회는 한 번만 실행
+    private final ObjectMapper objectMapper;
+
+    private static final int EXPORT_FETCH_SIZE = 1000;
+    private static final int MAX_SLICE_SIZE = 1000; // 커서 페이징 한 번에 조회할 수 있는 최대 건수
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
 
+    // 데이터 버전이 그대로면 If-None-Match에 304를 응답한다. (DB 조회, JSON 변환 X)
     @GetMapping("/v1/members")
-    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condtion){
-        return memberJpaRepository.search(condtion);
+    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condtion, WebRequest webRequest){
+        if (webRequest.checkNotModified(etag())) {
+            return null;
+        }
+        return memberSearchCache.search(condtion);
     }
 
     @GetMapping("/v2/members")
-    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condtion, Pageable pageable){
-        return memberRepository.searchPageSimple(condtion, pageable);
+    public Page<MemberTeamDto> searchMemberV2(MemberSearchCondition condtion, Pageable pageable, WebRequest webRequest){
+        if (webRequest.checkNotModified(etag())) {
+            return null;
+        }
+        return memberSearchCache.searchPageSimple(condtion, pageable);
     }
 
+    // exactTotal=false 이면 count 쿼리 없이 total을 추정한다. (응답의 totalExact로 정확한 값인지 확인)
     @GetMapping("/v3/members")
-    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condtion, Pageable pageable){
-        return memberRepository.searchPageComplex(condtion, pageable);
+    public Page<MemberTeamDto> searchMemberV3(MemberSearchCondition condtion, Pageable pageable,
+                                              @RequestParam(defaultValue = "true") boolean exactTotal,
+                                              WebRequest webRequest){
+        if (webRequest.checkNotModified(etag())) {
+            return null;
+        }
+        if (!exactTotal) {
+            return memberSearchCache.searchPageEstimated(condtion, pageable);
+        }
+        return memberSearchCache.searchPageComplex(condtion, pageable);
+    }
+
+    // 커서 기반 페이징 - 첫 요청은 cursor 없이 보내고, 이후에는 응답의 nextCursor를 그대로 넘긴다.
+    @GetMapping("/v4/members")
+    public MemberSliceDto searchMemberV4(MemberSearchCondition condtion,
+                                         @RequestParam(required = false) String cursor,
+                                         @RequestParam(defaultValue = "false") boolean orderByAge,
+                                         @RequestParam(defaultValue = "20") int size){
+        if (size < 1 || size > MAX_SLICE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size는 1 ~ " + MAX_SLICE_SIZE + " 사이여야 합니다: " + size);
+        }
+        MemberCursor memberCursor;
+        try {
+            memberCursor = cursor == null ? MemberCursor.first(orderByAge) : MemberCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        return new MemberSliceDto(memberRepository.searchSlice(condtion, memberCursor, size), memberCursor);
+    }
+
+    // 대용량 export - 전체 결과를 메모리에 올리지 않고 한 줄씩 응답으로 내려보낸다. (format : ndjson | csv)
+    @GetMapping("/v1/members/export")
+    public ResponseEntity<StreamingResponseBody> exportMembers(MemberSearchCondition condtion,
+                                                               @RequestParam(defaultValue = "ndjson") String format){
+        boolean csv;
+        if ("csv".equalsIgnoreCase(format)) {
+            csv = true;
+        } else if ("ndjson".equalsIgnoreCase(format)) {
+            csv = false;
+        } else {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "지원하지 않는 format입니다: " + format);
+        }
+
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            if (csv) {
+                writer.write("memberId,username,age,teamId,teamName\n");
+            }
+            memberJpaRepository.searchStream(condtion, EXPORT_FETCH_SIZE, dto -> {
+                try {
+                    writer.write(csv ? toCsvLine(dto) : objectMapper.writeValueAsString(dto));
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(csv ? CSV : NDJSON)
+                .body(body);
+    }
+
+    // 같은 URL(조건, 페이지, 정렬)의 응답은 데이터 버전이 같으면 같다.
+    private String etag() {
+        return "\"members-" + memberSearchCache.version() + "\"";
+    }
+
+    private static String toCsvLine(MemberTeamDto dto) {
+        return dto.getMemberId() + "," + csvValue(dto.getUsername()) + "," + dto.getAge() + ","
+                + (dto.getTeamId() == null ? "" : dto.getTeamId()) + "," + csvValue(dto.getTeamName());
+    }
+
+    private static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
     }
 }
@@ -0,0 +1,60 @@
+package study.querydsl.dto;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * keyset(seek) 페이징에서 사용하는 커서
+ * 마지막으로 읽은 row의 (age, memberId) 또는 (memberId)를 기억하고, 다음 페이지는 그 이후의 row부터 조회한다.
+ * 클라이언트에게는 encode()한 불투명(opaque) 토큰으로만 전달한다.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class MemberCursor {
+
+    private static final String ID_PREFIX = "i";
+    private static final String AGE_PREFIX = "a";
+
+    private final boolean orderByAge; // true : (age, memberId) 순서, false : memberId 순서
+    private final Integer age; // 마지막으로 읽은 회원의 나이 (첫 페이지는 null)
+    private final Long memberId; // 마지막으로 읽은 회원의 id (첫 페이지는 null)
+
+    //첫 페이지 조회용 커서
+    public static MemberCursor first(boolean orderByAge) {
+        return new MemberCursor(orderByAge, null, null);
+    }
+
+    //현재 페이지의 마지막 row 다음부터 조회하는 커서
+    public MemberCursor next(MemberTeamDto last) {
+        return new MemberCursor(orderByAge, orderByAge ? last.getAge() : null, last.getMemberId());
+    }
+
+    public boolean isFirst() {
+        return memberId == null;
+    }
+
+    public String encode() {
+        String raw = orderByAge ? AGE_PREFIX + ":" + age + ":" + memberId : ID_PREFIX + ":" + memberId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MemberCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts.length == 2 && ID_PREFIX.equals(parts[0])) {
+                return new MemberCursor(false, null, Long.valueOf(parts[1]));
+            }
+            if (parts.length == 3 && AGE_PREFIX.equals(parts[0])) {
+                return new MemberCursor(true, Integer.valueOf(parts[1]), Long.valueOf(parts[2]));
+            }
+        } catch (IllegalArgumentException e) { // Base64 오류, NumberFormatException 모두 포함
+            throw new IllegalArgumentException("잘못된 커서입니다: " + token, e);
+        }
+        throw new IllegalArgumentException("잘못된 커서입니다: " + token);
+    }
+}
@@ -2,6 +2,11 @@ package study.querydsl.dto;
 
 import lombok.Data;
 
+import java.util.Arrays;
+import java.util.List;
+
+import static org.springframework.util.StringUtils.hasText;
+
 @Data
 public class MemberSearchCondition {
     //회원명, 팀명, 나이(ageGoe, ageLoe)
@@ -9,4 +14,13 @@ public class MemberSearchCondition {
     private String teamName;
     private Integer ageGoe;
     private Integer ageLoe;
+
+    //캐시 키로 사용하기 위해 정규화 (where절과 같은 기준으로 빈 문자열은 조건이 없는 것과 같다)
+    public List<Object> normalizedKey() {
+        return Arrays.asList(
+                hasText(username) ? username : null,
+                hasText(teamName) ? teamName : null,
+                ageGoe,
+                ageLoe);
+    }
 }
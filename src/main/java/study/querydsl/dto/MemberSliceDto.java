@@ -0,0 +1,22 @@
+package study.querydsl.dto;
+
+import lombok.Data;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+@Data
+public class MemberSliceDto {
+    //커서 기반 페이징 응답 (전체 count를 조회하지 않는다)
+    private List<MemberTeamDto> content;
+    private boolean hasNext;
+    private String nextCursor; // 다음 페이지가 없으면 null
+
+    public MemberSliceDto(Slice<MemberTeamDto> slice, MemberCursor cursor) {
+        this.content = slice.getContent();
+        this.hasNext = slice.hasNext();
+        if (slice.hasNext()) {
+            this.nextCursor = cursor.next(content.get(content.size() - 1)).encode();
+        }
+    }
+}
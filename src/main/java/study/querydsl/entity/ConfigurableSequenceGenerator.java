@@ -0,0 +1,42 @@
+package study.querydsl.entity;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * 엔티티별 시퀀스 생성기 (pooled-lo)
+ *
+ * 시퀀스를 increment_size(기본 50)개씩 미리 할당받고 메모리에서 하나씩 꺼내 쓴다. (insert마다 시퀀스 조회 X)
+ * 엔티티에는 sequence_name만 적는다.
+ * increment_size는 설정으로 바꿀 수 있다. (설정 > @GenericGenerator 파라미터 > 기본값)
+ * spring.jpa.properties.querydsl.id.{시퀀스명}.increment-size: 100
+ */
+public class ConfigurableSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String STRATEGY = "study.querydsl.entity.ConfigurableSequenceGenerator";
+
+    private static final String INCREMENT_SIZE_KEY = "querydsl.id.%s.increment-size";
+    private static final String DEFAULT_INCREMENT_SIZE = "50";
+    private static final String DEFAULT_OPTIMIZER = "pooled-lo";
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Object incrementSize = serviceRegistry.getService(ConfigurationService.class)
+                .getSettings()
+                .get(String.format(INCREMENT_SIZE_KEY, params.getProperty(SEQUENCE_PARAM)));
+        if (incrementSize != null) {
+            params.setProperty(INCREMENT_PARAM, incrementSize.toString());
+        } else if (!params.containsKey(INCREMENT_PARAM)) {
+            params.setProperty(INCREMENT_PARAM, DEFAULT_INCREMENT_SIZE);
+        }
+        if (!params.containsKey(OPT_PARAM)) {
+            params.setProperty(OPT_PARAM, DEFAULT_OPTIMIZER);
+        }
+        super.configure(type, params, serviceRegistry);
+    }
+}
@@ -0,0 +1,68 @@
+package study.querydsl.entity;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * member/team 테이블을 바꾸는 SQL이 실행되면 DataChangedEvent를 발행한다. (하이버네이트 StatementInspector)
+ *
+ * 엔티티 저장/수정/삭제뿐 아니라 bulk 쿼리(queryFactory.update/delete, deleteAllInBatch 등)와 StatelessSession도
+ * 엔티티 리스너를 거치지 않으므로 하이버네이트가 실행하는 모든 SQL을 보고 변경을 알린다. (처리는 트랜잭션마다 한 번)
+ * 하이버네이트를 거치지 않는 JDBC 쓰기는 알 수 없다.
+ */
+@Component
+public class DataChangeStatementInspector implements StatementInspector, HibernatePropertiesCustomizer {
+
+    // 주석(use_sql_comments)이 앞에 붙을 수 있다
+    private static final Pattern DATA_CHANGE = Pattern.compile(
+            "^\\s*(?:/\\*.*?\\*/\\s*)*(?:insert\\s+into|update|delete\\s+from|delete)\\s+(member|team)\\b",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public DataChangeStatementInspector(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Class<?> changed = changedEntity(sql);
+        if (changed != null) {
+            eventPublisher.publishEvent(new DataChangedEvent(changed));
+        }
+        return sql; // SQL은 바꾸지 않는다
+    }
+
+    static Class<?> changedEntity(String sql) {
+        char first = firstChar(sql);
+        if (first != 'i' && first != 'u' && first != 'd' && first != '/') {
+            return null; // select는 정규식까지 가지 않는다
+        }
+        Matcher matcher = DATA_CHANGE.matcher(sql);
+        if (!matcher.find()) {
+            return null;
+        }
+        return matcher.group(1).equalsIgnoreCase("member") ? Member.class : Team.class;
+    }
+
+    private static char firstChar(String sql) {
+        for (int i = 0; i < sql.length(); i++) {
+            if (!Character.isWhitespace(sql.charAt(i))) {
+                return Character.toLowerCase(sql.charAt(i));
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,14 @@
+package study.querydsl.entity;
+
+import lombok.Getter;
+
+// 엔티티가 저장/수정/삭제되었다는 이벤트 (DataChangeStatementInspector가 발행)
+@Getter
+public class DataChangedEvent {
+
+    private final Class<?> entityClass;
+
+    public DataChangedEvent(Class<?> entityClass) {
+        this.entityClass = entityClass;
+    }
+}
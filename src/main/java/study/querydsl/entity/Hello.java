@@ -2,6 +2,8 @@ package study.querydsl.entity;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -12,6 +14,8 @@ import javax.persistence.Id;
 @Setter
 public class Hello {
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "hello_seq_generator")
+    @GenericGenerator(name = "hello_seq_generator", strategy = ConfigurableSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = "sequence_name", value = "hello_seq"))
     private Long id;
 }
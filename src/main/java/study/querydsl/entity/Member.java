@@ -2,18 +2,34 @@ package study.querydsl.entity;
 
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_member_username", columnList = "username"), // usernameEq
+        @Index(name = "idx_member_team_age", columnList = "team_id, age"), // teamNameEq(팀 -> 회원) + ageGoe/ageLoe
+        @Index(name = "idx_member_age_id", columnList = "age, member_id") // ageGoe/ageLoe, (age, id) seek 페이징
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE) // 2차 캐시
+@NamedEntityGraph(name = Member.TEAM_GRAPH, attributeNodes = @NamedAttributeNode("team")) // 회원 + 팀을 함께 조회
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED) //기본생성자를 lombok으로 생성 하는 어노테이션(JPA에서는 기본생성자가 핋요)
 @ToString(of = {"id", "username", "age"}) //연관관계 필드에 대해서는 작성하지 않는 것이 좋다(자신이 소유한 필드만 사용하는 것을 권장)
 public class Member {
 
+    public static final String TEAM_GRAPH = "Member.team";
+
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "member_seq_generator")
+    @GenericGenerator(name = "member_seq_generator", strategy = ConfigurableSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = "sequence_name", value = "member_seq"))
     @Column(name = "member_id")
     private Long id;
     private String username;
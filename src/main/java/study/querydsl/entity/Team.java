@@ -1,12 +1,19 @@
 package study.querydsl.entity;
 
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(indexes = @Index(name = "idx_team_name", columnList = "name")) // teamNameEq
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE) // 2차 캐시 - 팀은 거의 바뀌지 않고 검색마다 조회된다
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED) //기본생성자를 lombok으로 생성 하는 어노테이션(JPA에서는 기본생성자가 핋요)
@@ -14,12 +21,15 @@ import java.util.List;
 public class Team {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "team_seq_generator")
+    @GenericGenerator(name = "team_seq_generator", strategy = ConfigurableSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = "sequence_name", value = "team_seq"))
     private Long id;
     private String name;
 
     //양방향 연관관계의 경우 주인 설정
     @OneToMany(mappedBy = "team") //연관관계 주인이 아니다
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE) // 컬렉션 캐시 (회원 id 목록만 저장, 회원은 Member 캐시에서 찾는다)
     private List<Member> members = new ArrayList<>();
 
     public Team(String name){
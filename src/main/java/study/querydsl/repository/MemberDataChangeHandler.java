@@ -0,0 +1,48 @@
+package study.querydsl.repository;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import study.querydsl.entity.DataChangedEvent;
+import study.querydsl.repository.support.CountQueryCache;
+import study.querydsl.repository.support.DataVersion;
+
+/**
+ * 회원/팀 데이터 변경 처리 - 페이징 count 캐시를 비우고 데이터 버전(결과 캐시, ETag)을 올린다.
+ *
+ * 트랜잭션 안에서 바뀌면 트랜잭션마다 한 번만 등록해 두고 커밋된 뒤에 비운다.
+ * (커밋 전에 비우면 다른 요청이 이전 데이터로 다시 채울 수 있고, 여러 건을 저장할 때 매번 비우지 않도록)
+ * 트랜잭션 밖에서 바뀌면 바로 비운다. 데이터 버전도 DataVersion이 같은 방식으로 트랜잭션마다 한 번 올린다.
+ */
+@Component
+public class MemberDataChangeHandler {
+
+    private final CountQueryCache countQueryCache;
+    private final DataVersion dataVersion;
+
+    // 상태가 없으므로 모든 트랜잭션에서 같은 객체를 등록한다. (이미 등록되어 있는지 확인하는 용도)
+    private final TransactionSynchronization invalidateAfterCommit = new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+            countQueryCache.invalidateAll();
+        }
+    };
+
+    public MemberDataChangeHandler(CountQueryCache countQueryCache, DataVersion dataVersion) {
+        this.countQueryCache = countQueryCache;
+        this.dataVersion = dataVersion;
+    }
+
+    @EventListener
+    public void onChange(DataChangedEvent event) {
+        dataVersion.bump();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            countQueryCache.invalidateAll();
+            return;
+        }
+        if (!TransactionSynchronizationManager.getSynchronizations().contains(invalidateAfterCommit)) {
+            TransactionSynchronizationManager.registerSynchronization(invalidateAfterCommit);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package study.querydsl.repository;
+
+/**
+ * 회원 엔티티 조회 시 팀을 어떻게 가져올지 (호출할 때 선택)
+ * 화면에 필요한 값만 조회하면 되는 경우에는 엔티티 대신 DTO 조회(search, searchPageComplex)를 사용한다.
+ */
+public enum MemberFetchPlan {
+    LAZY, // 팀은 프록시, 접근할 때 조회 (batch fetch)
+    FETCH_JOIN, // join fetch로 같은 쿼리에서 팀까지 조회
+    ENTITY_GRAPH // JPA entity graph(Member.TEAM_GRAPH)로 팀까지 조회
+}
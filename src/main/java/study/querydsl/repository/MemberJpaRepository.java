@@ -1,11 +1,20 @@
 package study.querydsl.repository;
 
 
+import com.mysema.commons.lang.CloseableIterator;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.support.Querydsl;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
@@ -14,26 +23,41 @@ import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.QTeam;
+import study.querydsl.repository.support.CountQueryCache;
+import study.querydsl.repository.support.QuerydslCountQueries;
+import study.querydsl.repository.support.ReadOnlyHint;
 
 import javax.persistence.EntityManager;
 import javax.swing.text.html.Option;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.springframework.util.StringUtils.*;
 
+// 조회 메서드는 읽기 전용 트랜잭션(flush 하지 않음, replica 라우팅), 쓰기 메서드만 @Transactional
 @Repository
+@Transactional(readOnly = true)
 public class MemberJpaRepository {
     private final EntityManager em; //JPA접근을 위해 필요
     private final JPAQueryFactory queryFactory;
+    private final CountQueryCache countQueryCache;
+    private final Querydsl querydsl; // Pageable의 Sort 적용
 
-    public MemberJpaRepository(EntityManager em) {
+    public MemberJpaRepository(EntityManager em, CountQueryCache countQueryCache) {
         this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.querydsl = new Querydsl(em, new PathBuilder<>(Member.class, QMember.member.getMetadata()));
+        this.countQueryCache = countQueryCache;
     }
 
+    @Transactional
     public void save(Member member){
-        em.persist(member);
+        em.persist(member); // count 캐시는 DataChangeStatementInspector -> MemberDataChangeHandler가 커밋 후에 비운다
     }
 
 
@@ -44,29 +68,30 @@ public class MemberJpaRepository {
 
     //순수 JPA를 사용
     public List<Member> findall(){
-        return em.createQuery("select m from Member m", Member.class)
+        // 읽기 전용 트랜잭션이면 조회 전용 - dirty checking용 스냅샷을 만들지 않는다
+        return ReadOnlyHint.apply(em.createQuery("select m from Member m", Member.class))
                 .getResultList();
     }
 
     // querydsl로 findall메서드를 변경경
     public List<Member> findAll_Querydsl(){
-        return queryFactory
-                .selectFrom(QMember.member)
+        return ReadOnlyHint.apply(queryFactory
+                .selectFrom(QMember.member))
                 .fetch();
     }
 
     //순수 JPA를 사용
    public List<Member> findByUsername(String username){
-        return em.createQuery("select m from Member m where m.username = :username", Member.class)
+        return ReadOnlyHint.apply(em.createQuery("select m from Member m where m.username = :username", Member.class))
                 .setParameter("username", username)
                 .getResultList();
     }
 
     //findByUsername을 querydsl로 변경
     public List<Member> findByUsername_Querydsl(String username){
-        return queryFactory
+        return ReadOnlyHint.apply(queryFactory
                 .selectFrom(QMember.member)
-                .where(QMember.member.username.eq(username))
+                .where(QMember.member.username.eq(username)))
                 .fetch();
     }
 
@@ -125,6 +150,43 @@ public class MemberJpaRepository {
                 .fetch();
     }
 
+    // search와 같은 결과 - 조건 조합별로 미리 만들어 둔 JPQL을 재사용 (MemberSearchQueries)
+    // Querydsl 식 트리를 매번 만들고 JPQL로 바꾸는 비용이 없다. (MemberSearchBenchmark에서 search와 비교)
+    public List<MemberTeamDto> searchByTemplate(MemberSearchCondition condition){
+        return MemberSearchQueries.searchDto(em, condition);
+    }
+
+    // 대용량 조회 (export) - 결과를 List로 모으지 않고 forward-only 커서(ScrollableResults)로 한 건씩 넘긴다.
+    // DTO로 조회하므로 영속성 컨텍스트에 엔티티가 쌓이지 않는다. (메모리는 fetchSize 만큼의 row와 consumer가 잡고 있는 것뿐)
+    // 조건이 없으면 findAll_Querydsl과 같은 대상을 조회한다.
+    public long searchStream(MemberSearchCondition condition, int fetchSize, Consumer<MemberTeamDto> consumer){
+        long count = 0;
+        try (CloseableIterator<MemberTeamDto> iterator = queryFactory
+                .select(new QMemberTeamDto(
+                        QMember.member.id.as("memberId"),
+                        QMember.member.username,
+                        QMember.member.age,
+                        QTeam.team.id.as("teamId"),
+                        QTeam.team.name.as("teamName")
+                ))
+                .from(QMember.member)
+                .leftJoin(QMember.member.team, QTeam.team)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                )
+                .setHint(QueryHints.FETCH_SIZE, fetchSize) // JDBC 드라이버가 한번에 가져오는 row 수 (DTO 조회라 readOnly 힌트는 필요 없다)
+                .iterate()) {
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                count++;
+            }
+        }
+        return count;
+    }
+
     private BooleanExpression usernameEq(String username) {
         return hasText(username) ? QMember.member.username.eq(username) : null;
     }
@@ -144,9 +206,29 @@ public class MemberJpaRepository {
 
     // 동적쿼리 최적화 (where절 사용2) - where절의 조건은 재사용이 가능하다.
     public List<Member> searchMember(MemberSearchCondition condition){
-        return queryFactory
+        return ReadOnlyHint.apply(queryFactory
                 .selectFrom(QMember.member)
                 .leftJoin(QMember.member.team, QTeam.team)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                ))
+                .fetch();
+    }
+
+    // searchMember와 같은 결과 - 조건 조합별로 미리 만들어 둔 JPQL을 재사용 (MemberSearchQueries)
+    public List<Member> searchMemberByTemplate(MemberSearchCondition condition){
+        return MemberSearchQueries.searchMember(em, condition);
+    }
+
+    // 팀을 가져오는 방법(fetch plan)을 호출할 때 선택
+    public List<Member> searchMember(MemberSearchCondition condition, MemberFetchPlan fetchPlan){
+        if (fetchPlan == MemberFetchPlan.LAZY) {
+            return searchMember(condition);
+        }
+        return memberQuery(fetchPlan)
                 .where(
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
@@ -156,5 +238,59 @@ public class MemberJpaRepository {
                 .fetch();
     }
 
+    // fetch join + 페이징을 같은 쿼리에서 하지 않고 2단계로 나눈다. (Pageable의 정렬, 같으면 id 순서)
+    // 1단계 : 페이지에 해당하는 회원 id만 DB에서 페이징, 2단계 : 그 id들의 회원(+팀)을 fetch plan대로 조회
+    public Page<Member> searchMemberPage(MemberSearchCondition condition, Pageable pageable, MemberFetchPlan fetchPlan){
+        JPAQuery<Long> idQuery = queryFactory
+                .select(QMember.member.id)
+                .from(QMember.member)
+                .leftJoin(QMember.member.team, QTeam.team)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                );
+        // Pageable의 Sort를 id 쿼리에 적용 (ex. username,desc -> member.username desc)
+        List<Long> ids = querydsl.applySorting(pageable.getSort(), idQuery)
+                .orderBy(QMember.member.id.asc()) // 정렬 값이 같은 회원끼리도 페이지 경계가 흔들리지 않도록
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .fetch();
+
+        // in절 결과는 순서가 보장되지 않으므로 id 쿼리의 순서대로 다시 맞춘다
+        List<Member> content = ids.isEmpty() ? List.of() : orderByIds(ids, memberQuery(fetchPlan)
+                .where(QMember.member.id.in(ids))
+                .fetch());
+
+        // count는 id 쿼리에서 만든다 (정렬/페이징과 조건에 쓰지 않는 팀 join 제거, QuerydslCountQueries)
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> countQueryCache.get(Member.class, condition.normalizedKey(),
+                        () -> QuerydslCountQueries.count(em, idQuery)));
+    }
+
+    private static List<Member> orderByIds(List<Long> ids, List<Member> content) {
+        Map<Long, Member> contentById = content.stream()
+                .collect(Collectors.toMap(Member::getId, Function.identity()));
+        return ids.stream()
+                .map(contentById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private JPAQuery<Member> memberQuery(MemberFetchPlan fetchPlan) {
+        JPAQuery<Member> query = ReadOnlyHint.apply(queryFactory
+                .selectFrom(QMember.member)
+                .leftJoin(QMember.member.team, QTeam.team));
+        switch (fetchPlan) {
+            case FETCH_JOIN:
+                return query.fetchJoin();
+            case ENTITY_GRAPH:
+                return query.setHint("javax.persistence.fetchgraph", em.getEntityGraph(Member.TEAM_GRAPH));
+            default:
+                return query;
+        }
+    }
+
 
 }
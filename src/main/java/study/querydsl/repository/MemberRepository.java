@@ -1,14 +1,20 @@
 package study.querydsl.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
 import study.querydsl.entity.Member;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 
 public interface MemberRepository extends JpaRepository<Member, Long>, MemberRepositoryCustom, QuerydslPredicateExecutor<Member> {
     //Spring Data JPA를 사용해서 동작하는 로직
 
     // 메서드 이름을 가지고 jpa가 쿼리를 자동으로 만들어주는 전략 (-> select m from Member m where m.username = ?)
+    // 쿼리 캐시 사용 (결과 id 목록을 캐시하고, Member 테이블이 바뀌면 자동으로 무효화된다)
+    // readOnly 힌트는 주지 않는다. 호출한 쪽 트랜잭션이 없으면 기본 읽기 전용 트랜잭션에서 세션 전체가 읽기 전용으로 로딩하고,
+    // 호출한 쪽의 쓰기 트랜잭션에 참여하면 조회한 엔티티를 수정할 수 있어야 한다.
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<Member> findByUsername(String username);
 }
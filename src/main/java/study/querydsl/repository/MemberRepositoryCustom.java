@@ -2,8 +2,12 @@ package study.querydsl.repository;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import study.querydsl.dto.MemberCursor;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.support.BulkOptions;
+import study.querydsl.repository.support.EstimatedPage;
 
 import java.util.List;
 
@@ -12,4 +16,11 @@ public interface MemberRepositoryCustom {
     List<MemberTeamDto> search(MemberSearchCondition condition);
     Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
+    EstimatedPage<MemberTeamDto> searchPageEstimated(MemberSearchCondition condition, Pageable pageable);
+    Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, MemberCursor cursor, int size);
+
+    //대량 수정/삭제 - id 범위 chunk 단위로 나눠서 각각 커밋한다. (영향을 받은 row 수 반환)
+    long bulkUpdateUsername(MemberSearchCondition condition, String username, BulkOptions options);
+    long bulkAddAge(MemberSearchCondition condition, int amount, BulkOptions options);
+    long bulkDelete(MemberSearchCondition condition, BulkOptions options);
 }
@@ -1,38 +1,69 @@
 package study.querydsl.repository;
 
-import com.querydsl.core.QueryResults;
+import com.querydsl.core.Tuple;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.JPAExpressions;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+import study.querydsl.dto.MemberCursor;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.dto.QMemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.QTeam;
+import study.querydsl.repository.support.BulkOptions;
+import study.querydsl.repository.support.ChunkedBulkExecutor;
+import study.querydsl.repository.support.CountQueryCache;
+import study.querydsl.repository.support.EstimatedPage;
+import study.querydsl.repository.support.PagingQueryExecutor;
+import study.querydsl.repository.support.QuerydslCountQueries;
 
 import javax.persistence.EntityManager;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.springframework.util.StringUtils.hasText;
 
-//interface를 구현하는 구현체
+//interface를 구현하는 구현체 (조회는 읽기 전용 트랜잭션, bulk 수정/삭제는 chunk마다 쓰기 트랜잭션)
+@Transactional(readOnly = true)
 public class MemberRepositoryImpl implements MemberRepositoryCustom{
 
+    private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final PagingQueryExecutor pagingQueryExecutor;
+    private final CountQueryCache countQueryCache;
+    private final ChunkedBulkExecutor chunkedBulkExecutor;
 
-    public MemberRepositoryImpl(EntityManager em){
+    public MemberRepositoryImpl(EntityManager em, PagingQueryExecutor pagingQueryExecutor, CountQueryCache countQueryCache,
+                                ChunkedBulkExecutor chunkedBulkExecutor){
+        this.em = em;
         this.queryFactory = new JPAQueryFactory(em);
+        this.pagingQueryExecutor = pagingQueryExecutor;
+        this.countQueryCache = countQueryCache;
+        this.chunkedBulkExecutor = chunkedBulkExecutor;
     }
 
     @Override
-    // 동적쿼리 최적화 (where절 사용)
+    // 동적쿼리 최적화 (where절 사용) -> 조건 조합별로 미리 만들어 둔 JPQL을 재사용
     public List<MemberTeamDto> search(MemberSearchCondition condition){
-        return queryFactory
+        return MemberSearchQueries.searchDto(em, condition);
+    }
+
+    // 비교 기준(naive)이 되는 페이징 - content, count 쿼리를 항상 둘 다 실행하고 PageImpl을 만든다.
+    // count 생략(PageableExecutionUtils), count 캐시, count 동시 실행은 searchPageComplex에 있다. (MemberSearchBenchmark에서 비교)
+    @Override
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        JPAQuery<MemberTeamDto> query = queryFactory
                 .select(new QMemberTeamDto(
                         QMember.member.id.as("memberId"),
                         QMember.member.username,
@@ -48,12 +79,19 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
                 )
-                .fetch();
+                .offset(pageable.getOffset()) //몇번째 부터 시작할 것인지
+                .limit(pageable.getPageSize()); //한번 조회할때 몇번을 조회할 것인지
+
+        List<MemberTeamDto> content = query.fetch();
+        // fetchResults() 대신 order by, 사용하지 않는 left join(teamName 조건이 없을 때의 team)을 제거한 count 쿼리
+        long total = QuerydslCountQueries.count(em, query);
+
+        return new PageImpl<>(content, pageable, total);
     }
 
     @Override
-    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        QueryResults<MemberTeamDto> results =  queryFactory
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        JPAQuery<MemberTeamDto> contentQuery = queryFactory
                 .select(new QMemberTeamDto(
                         QMember.member.id.as("memberId"),
                         QMember.member.username,
@@ -70,18 +108,31 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
                         ageLoe(condition.getAgeLoe())
                 )
                 .offset(pageable.getOffset()) //몇번째 부터 시작할 것인지
-                .limit(pageable.getPageSize()) //한번 조회할때 몇번을 조회할 것인지
-                .fetchResults();
+                .limit(pageable.getPageSize()); //한번 조회할때 몇번을 조회할 것인지
 
-        List<MemberTeamDto> content = results.getResults();
-        long total = results.getTotal();
+        JPAQuery<Member> countQuery = queryFactory
+                .select(QMember.member)
+                .from(QMember.member)
+                .leftJoin(QMember.member.team, QTeam.team)
+                .where(
+                        usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                );
 
-        return new PageImpl<>(content, pageable, total);
+        // count 로직을 호출해야 카운트 쿼리가 실행된다. (parallel-count 설정 시 content 쿼리와 동시에 실행)
+        // 같은 조건의 total은 count 캐시에서 재사용한다.
+        return pagingQueryExecutor.getPage(contentQuery::fetch, pageable,
+                () -> countQueryCache.get(Member.class, condition.normalizedKey(),
+                        () -> QuerydslCountQueries.count(em, countQuery)));
+//        return new PageImpl<>(content, pageable, total);
     }
 
+    // count 쿼리 없이 total을 추정 ("X / 약 Y 페이지" 화면용), totalExact로 정확한 값인지 알려준다.
     @Override
-    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDto> content =  queryFactory
+    public EstimatedPage<MemberTeamDto> searchPageEstimated(MemberSearchCondition condition, Pageable pageable) {
+        JPAQuery<MemberTeamDto> contentQuery = queryFactory
                 .select(new QMemberTeamDto(
                         QMember.member.id.as("memberId"),
                         QMember.member.username,
@@ -97,23 +148,138 @@ public class MemberRepositoryImpl implements MemberRepositoryCustom{
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
                 )
-                .offset(pageable.getOffset()) //몇번째 부터 시작할 것인지
-                .limit(pageable.getPageSize()) //한번 조회할때 몇번을 조회할 것인지
-                .fetch();
+                .offset(pageable.getOffset())
+                .limit(pageable.getPageSize() + 1); //다음 페이지 존재 여부를 알기 위해 1개 더 조회
 
-        JPAQuery<Member> countQuery = queryFactory
-                .select(QMember.member)
+        return pagingQueryExecutor.getEstimatedPage(contentQuery::fetch, pageable,
+                countQueryCache.peek(Member.class, condition.normalizedKey()),
+                () -> countQueryCache.get(Member.class, condition.normalizedKey(),
+                        () -> QuerydslCountQueries.count(em, contentQuery)));
+    }
+
+    // keyset(seek) 페이징 - offset 대신 마지막으로 읽은 row 이후를 where절로 찾기 때문에 페이지가 깊어져도 skip하는 row가 없다.
+    @Override
+    public Slice<MemberTeamDto> searchSlice(MemberSearchCondition condition, MemberCursor cursor, int size) {
+        Assert.isTrue(size > 0, "size must be greater than 0"); // size=0이면 빈 페이지인데 다음 페이지가 있다고 응답하게 된다
+        JPAQuery<MemberTeamDto> query = queryFactory
+                .select(new QMemberTeamDto(
+                        QMember.member.id.as("memberId"),
+                        QMember.member.username,
+                        QMember.member.age,
+                        QTeam.team.id.as("teamId"),
+                        QTeam.team.name.as("teamName")
+                ))
                 .from(QMember.member)
                 .leftJoin(QMember.member.team, QTeam.team)
                 .where(
                         usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
+                        ageLoe(condition.getAgeLoe()),
+                        seek(cursor)
                 );
 
-        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount); // countQuery.fetchCount()해당 로직을 사용해야 카운트 쿼리가 실행된다.
-//        return new PageImpl<>(content, pageable, total);
+        if (cursor.isOrderByAge()) {
+            query.orderBy(QMember.member.age.asc(), QMember.member.id.asc());
+        } else {
+            query.orderBy(QMember.member.id.asc());
+        }
+
+        List<MemberTeamDto> content = query
+                .limit(size + 1) //다음 페이지 존재 여부를 알기 위해 1개 더 조회
+                .fetch();
+
+        boolean hasNext = content.size() > size;
+        if (hasNext) {
+            content = content.subList(0, size);
+        }
+        return new SliceImpl<>(content, PageRequest.of(0, size), hasNext);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS) // chunk마다 별도 트랜잭션으로 커밋하므로 작업 전체를 감싸는 트랜잭션은 열지 않는다
+    public long bulkUpdateUsername(MemberSearchCondition condition, String username, BulkOptions options) {
+        return bulk(condition, options, (fromId, toId) -> queryFactory
+                .update(QMember.member)
+                .set(QMember.member.username, username)
+                .where(bulkCondition(condition, fromId, toId))
+                .execute());
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS) // chunk마다 별도 트랜잭션으로 커밋하므로 작업 전체를 감싸는 트랜잭션은 열지 않는다
+    public long bulkAddAge(MemberSearchCondition condition, int amount, BulkOptions options) {
+        return bulk(condition, options, (fromId, toId) -> queryFactory
+                .update(QMember.member)
+                .set(QMember.member.age, QMember.member.age.add(amount))
+                .where(bulkCondition(condition, fromId, toId))
+                .execute());
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS) // chunk마다 별도 트랜잭션으로 커밋하므로 작업 전체를 감싸는 트랜잭션은 열지 않는다
+    public long bulkDelete(MemberSearchCondition condition, BulkOptions options) {
+        return bulk(condition, options, (fromId, toId) -> queryFactory
+                .delete(QMember.member)
+                .where(bulkCondition(condition, fromId, toId))
+                .execute());
+    }
+
+    private long bulk(MemberSearchCondition condition, BulkOptions options, ChunkedBulkExecutor.ChunkAction action) {
+        // 조건에 맞는 회원 id를 chunkSize건씩 나눈다. (keyset - 다음 chunk의 첫 id를 조건에 맞는 id 중에서 찾는다)
+        // 조건에 맞는 회원이 드문드문 있어도 chunk마다 대상이 있으므로 빈 chunk 트랜잭션을 만들지 않는다.
+        Tuple target = chunkedBulkExecutor.readOnly(() -> queryFactory
+                .select(QMember.member.id.min(), QMember.member.id.max(), QMember.member.id.count())
+                .from(QMember.member)
+                .where(bulkCondition(condition))
+                .fetchOne());
+        Long count = target.get(QMember.member.id.count());
+        return chunkedBulkExecutor.execute(Member.class,
+                target.get(QMember.member.id.min()), target.get(QMember.member.id.max()), count == null ? 0 : count,
+                fromId -> chunkedBulkExecutor.readOnly(() -> queryFactory
+                        .select(QMember.member.id)
+                        .from(QMember.member)
+                        .where(bulkCondition(condition))
+                        .where(QMember.member.id.goe(fromId))
+                        .orderBy(QMember.member.id.asc())
+                        .offset(options.getChunkSize())
+                        .limit(1)
+                        .fetchOne()),
+                options, action);
+    }
+
+    private BooleanExpression[] bulkCondition(MemberSearchCondition condition, long fromId, long toId) {
+        BooleanExpression[] searchCondition = bulkCondition(condition);
+        BooleanExpression[] chunkCondition = Arrays.copyOf(searchCondition, searchCondition.length + 2);
+        chunkCondition[searchCondition.length] = QMember.member.id.goe(fromId);
+        chunkCondition[searchCondition.length + 1] = QMember.member.id.lt(toId);
+        return chunkCondition;
+    }
+
+    // update/delete 쿼리는 join을 사용할 수 없으므로 팀 이름 조건은 서브쿼리로 바꾼다.
+    private BooleanExpression[] bulkCondition(MemberSearchCondition condition) {
+        return new BooleanExpression[]{
+                usernameEq(condition.getUsername()),
+                hasText(condition.getTeamName())
+                        ? QMember.member.team.id.in(JPAExpressions
+                                .select(QTeam.team.id)
+                                .from(QTeam.team)
+                                .where(QTeam.team.name.eq(condition.getTeamName())))
+                        : null,
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())
+        };
+    }
+
+    private BooleanExpression seek(MemberCursor cursor) {
+        if (cursor.isFirst()) {
+            return null;
+        }
+        if (cursor.isOrderByAge()) {
+            return QMember.member.age.gt(cursor.getAge())
+                    .or(QMember.member.age.eq(cursor.getAge()).and(QMember.member.id.gt(cursor.getMemberId())));
+        }
+        return QMember.member.id.gt(cursor.getMemberId());
     }
 
     private BooleanExpression usernameEq(String username) {
@@ -0,0 +1,53 @@
+package study.querydsl.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.support.DataVersion;
+import study.querydsl.repository.support.SearchResultCache;
+
+import java.util.Arrays;
+import java.util.List;
+
+// 회원 검색 결과 캐시 -> 캐시에 없으면 MemberSearchCoalescer로 조회 (동시에 들어온 같은 조회는 한 번만 실행)
+@Component
+public class MemberSearchCache {
+
+    private final MemberSearchCoalescer memberSearchCoalescer;
+    private final SearchResultCache searchResultCache;
+    private final DataVersion dataVersion;
+
+    public MemberSearchCache(MemberSearchCoalescer memberSearchCoalescer, SearchResultCache searchResultCache,
+                             DataVersion dataVersion) {
+        this.memberSearchCoalescer = memberSearchCoalescer;
+        this.searchResultCache = searchResultCache;
+        this.dataVersion = dataVersion;
+    }
+
+    // 응답의 ETag로 사용 (같은 버전이면 같은 URL의 결과가 바뀌지 않았다)
+    public String version() {
+        return dataVersion.tag();
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return searchResultCache.get("search", condition.normalizedKey(),
+                () -> memberSearchCoalescer.search(condition));
+    }
+
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return searchResultCache.get("searchPageSimple", Arrays.asList(condition.normalizedKey(), pageable),
+                () -> memberSearchCoalescer.searchPageSimple(condition, pageable));
+    }
+
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return searchResultCache.get("searchPageComplex", Arrays.asList(condition.normalizedKey(), pageable),
+                () -> memberSearchCoalescer.searchPageComplex(condition, pageable));
+    }
+
+    // total이 추정값이라 캐시하지 않는다 (count 캐시로 이미 추정)
+    public Page<MemberTeamDto> searchPageEstimated(MemberSearchCondition condition, Pageable pageable) {
+        return memberSearchCoalescer.searchPageEstimated(condition, pageable);
+    }
+}
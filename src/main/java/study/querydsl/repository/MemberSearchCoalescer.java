@@ -0,0 +1,48 @@
+package study.querydsl.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.repository.support.SingleFlight;
+
+import java.util.Arrays;
+import java.util.List;
+
+// 대시보드 새로고침처럼 같은 조건 + 같은 페이지 요청이 동시에 몰리면 content/count 쿼리를 한 번만 실행한다.
+@Component
+public class MemberSearchCoalescer {
+
+    private final MemberRepository memberRepository;
+    private final SingleFlight singleFlight;
+
+    public MemberSearchCoalescer(MemberRepository memberRepository, SingleFlight singleFlight) {
+        this.memberRepository = memberRepository;
+        this.singleFlight = singleFlight;
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        return singleFlight.execute("search", condition.normalizedKey(),
+                () -> memberRepository.search(condition));
+    }
+
+    public Page<MemberTeamDto> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        return singleFlight.execute("searchPageSimple", key(condition, pageable),
+                () -> memberRepository.searchPageSimple(condition, pageable));
+    }
+
+    public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
+        return singleFlight.execute("searchPageComplex", key(condition, pageable),
+                () -> memberRepository.searchPageComplex(condition, pageable));
+    }
+
+    public Page<MemberTeamDto> searchPageEstimated(MemberSearchCondition condition, Pageable pageable) {
+        return singleFlight.execute("searchPageEstimated", key(condition, pageable),
+                () -> memberRepository.searchPageEstimated(condition, pageable));
+    }
+
+    private static Object key(MemberSearchCondition condition, Pageable pageable) {
+        return Arrays.asList(condition.normalizedKey(), pageable);
+    }
+}
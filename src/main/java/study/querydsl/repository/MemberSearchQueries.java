@@ -0,0 +1,116 @@
+package study.querydsl.repository;
+
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.dto.MemberTeamDto;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.support.ReadOnlyHint;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 회원 검색 쿼리 템플릿
+ *
+ * 동적 검색 조건은 (username, teamName, ageGoe, ageLoe) 4개뿐이라 where절의 모양(shape)은 최대 16가지다.
+ * 모양별 JPQL을 미리 만들어 두고 파라미터만 바인딩하기 때문에, 요청마다 Querydsl 직렬화를 하지 않고
+ * 하이버네이트 쿼리 플랜 캐시도 항상 같은 16개의 문자열로만 조회된다.
+ */
+public final class MemberSearchQueries {
+
+    private static final int USERNAME = 1;
+    private static final int TEAM_NAME = 1 << 1;
+    private static final int AGE_GOE = 1 << 2;
+    private static final int AGE_LOE = 1 << 3;
+    public static final int SHAPE_COUNT = 1 << 4;
+
+    private static final String DTO_SELECT = "select new study.querydsl.dto.MemberTeamDto(m.id, m.username, m.age, t.id, t.name)";
+    private static final String MEMBER_SELECT = "select m";
+    private static final String FROM = " from Member m left join m.team t";
+    // 팀 이름 조건이 있으면 팀이 없는 회원은 어차피 제외되므로 inner join으로 바꾼다. (DB가 팀 이름 인덱스에서 시작할 수 있다)
+    private static final String FROM_TEAM = " from Member m join m.team t";
+
+    private static final String[] DTO_JPQL = new String[SHAPE_COUNT];
+    private static final String[] MEMBER_JPQL = new String[SHAPE_COUNT];
+
+    static {
+        for (int shape = 0; shape < SHAPE_COUNT; shape++) {
+            String fromWhere = ((shape & TEAM_NAME) != 0 ? FROM_TEAM : FROM) + where(shape);
+            DTO_JPQL[shape] = DTO_SELECT + fromWhere;
+            MEMBER_JPQL[shape] = MEMBER_SELECT + fromWhere;
+        }
+    }
+
+    private MemberSearchQueries() {
+    }
+
+    public static List<MemberTeamDto> searchDto(EntityManager em, MemberSearchCondition condition) {
+        int shape = shapeOf(condition);
+        return bind(em.createQuery(DTO_JPQL[shape], MemberTeamDto.class), shape, condition).getResultList();
+    }
+
+    public static List<Member> searchMember(EntityManager em, MemberSearchCondition condition) {
+        int shape = shapeOf(condition);
+        // 읽기 전용 트랜잭션이면 조회 전용 엔티티 - dirty checking용 스냅샷을 만들지 않는다
+        return bind(ReadOnlyHint.apply(em.createQuery(MEMBER_JPQL[shape], Member.class)), shape, condition)
+                .getResultList();
+    }
+
+    public static String dtoJpql(int shape) {
+        return DTO_JPQL[shape];
+    }
+
+    // where절 조건과 같은 기준(hasText, null 체크)으로 사용되는 조건을 bit로 표시
+    public static int shapeOf(MemberSearchCondition condition) {
+        int shape = 0;
+        if (hasText(condition.getUsername())) {
+            shape |= USERNAME;
+        }
+        if (hasText(condition.getTeamName())) {
+            shape |= TEAM_NAME;
+        }
+        if (condition.getAgeGoe() != null) {
+            shape |= AGE_GOE;
+        }
+        if (condition.getAgeLoe() != null) {
+            shape |= AGE_LOE;
+        }
+        return shape;
+    }
+
+    private static String where(int shape) {
+        List<String> predicates = new ArrayList<>();
+        if ((shape & USERNAME) != 0) {
+            predicates.add("m.username = :username");
+        }
+        if ((shape & TEAM_NAME) != 0) {
+            predicates.add("t.name = :teamName");
+        }
+        if ((shape & AGE_GOE) != 0) {
+            predicates.add("m.age >= :ageGoe");
+        }
+        if ((shape & AGE_LOE) != 0) {
+            predicates.add("m.age <= :ageLoe");
+        }
+        return predicates.isEmpty() ? "" : " where " + String.join(" and ", predicates);
+    }
+
+    private static <T> TypedQuery<T> bind(TypedQuery<T> query, int shape, MemberSearchCondition condition) {
+        if ((shape & USERNAME) != 0) {
+            query.setParameter("username", condition.getUsername());
+        }
+        if ((shape & TEAM_NAME) != 0) {
+            query.setParameter("teamName", condition.getTeamName());
+        }
+        if ((shape & AGE_GOE) != 0) {
+            query.setParameter("ageGoe", condition.getAgeGoe());
+        }
+        if ((shape & AGE_LOE) != 0) {
+            query.setParameter("ageLoe", condition.getAgeLoe());
+        }
+        return query;
+    }
+}
@@ -0,0 +1,166 @@
+package study.querydsl.repository;
+
+import org.hibernate.Cache;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.springframework.stereotype.Repository;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.CountQueryCache;
+import study.querydsl.repository.support.DataVersion;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.function.Consumer;
+
+/**
+ * 대량 배치 작업용 리포지토리 (하이버네이트 StatelessSession)
+ *
+ * 영속성 컨텍스트(1차 캐시), dirty checking, cascade, 2차 캐시, 엔티티 리스너를 거치지 않기 때문에
+ * 처리하는 row 수와 관계없이 메모리 사용량이 chunk 크기 수준으로 일정하다.
+ * - 연관관계 지연 로딩이 되지 않으므로 필요한 연관관계는 fetch join으로 함께 조회한다.
+ * - 수정은 update()를 호출한 엔티티만 반영된다. (변경 감지 X)
+ * - 스프링 트랜잭션과 별개로 자체 커넥션/트랜잭션을 사용하고 chunk마다 커밋한다.
+ * - 2차 캐시/쿼리 캐시를 갱신하지 않으므로 쓰기가 끝나면 관련 region을 직접 비운다.
+ * - insert/update는 hibernate.jdbc.batch_size만큼 JDBC batch로 묶이고, 남은 batch는 chunk를 커밋할 때 전송된다.
+ */
+@Repository
+public class MemberStatelessRepository {
+
+    private static final String SCROLL_QUERY = "select m from Member m left join fetch m.team order by m.id";
+    private static final String TEAM_MEMBERS_ROLE = Team.class.getName() + ".members";
+
+    private final SessionFactory sessionFactory;
+    private final CountQueryCache countQueryCache;
+    private final DataVersion dataVersion;
+
+    public MemberStatelessRepository(EntityManagerFactory entityManagerFactory, CountQueryCache countQueryCache,
+                                     DataVersion dataVersion) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.countQueryCache = countQueryCache;
+        this.dataVersion = dataVersion;
+    }
+
+    // 전체 회원(+팀)을 id 순서대로 한 건씩 넘긴다. (forward-only 커서, fetchSize만큼씩 가져온다)
+    // autocommit 상태에서는 fetchSize를 무시하고 전체 결과를 가져오는 드라이버(PostgreSQL)가 있으므로 읽기 전용 트랜잭션 안에서 조회한다.
+    public long scroll(int fetchSize, Consumer<Member> consumer) {
+        long count = 0;
+        StatelessSession session = sessionFactory.openStatelessSession();
+        Transaction transaction = null;
+        try {
+            session.doWork(connection -> connection.setReadOnly(true)); // 트랜잭션 시작 전에 설정해야 한다
+            transaction = session.beginTransaction();
+            ScrollableResults results = session.createQuery(SCROLL_QUERY, Member.class)
+                    .setFetchSize(fetchSize)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+            try {
+                while (results.next()) {
+                    consumer.accept((Member) results.get(0));
+                    count++;
+                }
+            } finally {
+                results.close();
+            }
+            transaction.commit();
+        } finally {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+            session.close(); // 커넥션의 readOnly는 커넥션 풀(Hikari)이 반납할 때 되돌린다
+        }
+        return count;
+    }
+
+    // 회원을 insert 하고 chunkSize건마다 커밋한다. (chunk 하나가 JDBC batch 하나) (팀은 이미 저장되어 있어야 한다 - cascade X)
+    public long insertAll(Iterable<Member> members, int chunkSize) {
+        ChunkedWriter writer = new ChunkedWriter(chunkSize);
+        try {
+            for (Member member : members) {
+                writer.insert(member);
+            }
+            return writer.commit();
+        } finally {
+            writer.close();
+        }
+    }
+
+    // 전체 회원을 읽으면서 modifier로 바꾼 값을 update 하고 chunkSize건마다 커밋한다.
+    public long updateAll(int fetchSize, int chunkSize, Consumer<Member> modifier) {
+        ChunkedWriter writer = new ChunkedWriter(chunkSize);
+        try {
+            scroll(fetchSize, member -> {
+                modifier.accept(member);
+                writer.update(member);
+            });
+            return writer.commit();
+        } finally {
+            writer.close();
+        }
+    }
+
+    // 읽기 커서와 별도의 세션(커넥션)으로 쓰기 때문에 chunk 커밋이 커서에 영향을 주지 않는다.
+    private class ChunkedWriter {
+
+        private final StatelessSession session = sessionFactory.openStatelessSession();
+        private final int chunkSize;
+        private Transaction transaction;
+        private long count;
+        private boolean written;
+
+        ChunkedWriter(int chunkSize) {
+            this.chunkSize = chunkSize;
+            this.transaction = session.beginTransaction();
+        }
+
+        void insert(Member member) {
+            session.insert(member);
+            next();
+        }
+
+        void update(Member member) {
+            session.update(member);
+            next();
+        }
+
+        private void next() {
+            written = true;
+            if (++count % chunkSize == 0) {
+                transaction.commit();
+                transaction = session.beginTransaction();
+            }
+        }
+
+        long commit() {
+            transaction.commit();
+            return count;
+        }
+
+        // 실패하면 마지막 chunk만 롤백된다. (이전 chunk는 이미 커밋)
+        void close() {
+            try {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                session.close();
+            } finally {
+                if (written) {
+                    evict();
+                }
+            }
+        }
+    }
+
+    // 엔티티 리스너, 2차 캐시를 거치지 않으므로 캐시를 직접 비운다.
+    // 쿼리 캐시는 update timestamp도 갱신되지 않으므로 전부 비우고, 회원이 바뀐 팀의 members 컬렉션 캐시도 비운다.
+    private void evict() {
+        Cache cache = sessionFactory.getCache();
+        cache.evictEntityData(Member.class);
+        cache.evictCollectionData(TEAM_MEMBERS_ROLE);
+        cache.evictQueryRegions();
+        countQueryCache.invalidateAll();
+        dataVersion.bump();
+    }
+}
@@ -6,10 +6,12 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.QTeam;
+import study.querydsl.repository.support.EstimatedPage;
 import study.querydsl.repository.support.Querydsl4RepositorySupport;
 
 import java.util.List;
@@ -17,6 +19,7 @@ import java.util.List;
 import static org.springframework.util.StringUtils.hasText;
 
 @Repository
+@Transactional(readOnly = true)
 public class MemberTestRepository extends Querydsl4RepositorySupport {
 
     public MemberTestRepository(){
@@ -49,7 +52,7 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
                 );
         List<Member> content = getQuerydsl().applyPagination(pageable, query)
                 .fetch();
-        return PageableExecutionUtils.getPage(content, pageable, query::fetchCount);
+        return PageableExecutionUtils.getPage(content, pageable, () -> countOf(query));
     }
 
 
@@ -79,18 +82,59 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
                 ), countQuery -> countQuery
-                .select(QMember.id)
+                .select(QMember.member.id)
                 .from(QMember.member)
                 .leftJoin(QMember.member.team, QTeam.team)
                 .where(usernameEq(condition.getUsername()),
                         teamNameEq(condition.getTeamName()),
                         ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
+                        ageLoe(condition.getAgeLoe())),
+                condition.normalizedKey() // 같은 조건이면 count 결과를 캐시에서 재사용
         );
         return result;
     }
 
 
+    // count 쿼리 없이 total을 추정 (applyPagination2의 count 결과가 캐시에 있으면 사용)
+    public EstimatedPage<Member> applyEstimatedPagination(MemberSearchCondition condition, Pageable pageable){
+        return applyEstimatedPagination(pageable, query
+                -> query.selectFrom(QMember.member)
+                .leftJoin(QMember.member.team, QTeam.team)
+                .where(usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                ), condition.normalizedKey()
+        );
+    }
+
+
+    // 2단계 페이징 - id만 먼저 페이징한 뒤, 그 id의 회원만 조회
+    public Page<Member> applyIdPagination(MemberSearchCondition condition, Pageable pageable){
+        return applyIdPagination(pageable, idQuery
+                -> idQuery.select(QMember.member.id)
+                .from(QMember.member)
+                .leftJoin(QMember.member.team, QTeam.team)
+                .where(usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe())
+                ), (contentQuery, ids) -> contentQuery
+                .selectFrom(QMember.member)
+                .where(QMember.member.id.in(ids)),
+                Member::getId,
+                countQuery -> countQuery
+                .select(QMember.member.id)
+                .from(QMember.member)
+                .leftJoin(QMember.member.team, QTeam.team)
+                .where(usernameEq(condition.getUsername()),
+                        teamNameEq(condition.getTeamName()),
+                        ageGoe(condition.getAgeGoe()),
+                        ageLoe(condition.getAgeLoe()))
+        );
+    }
+
+
     private BooleanExpression usernameEq(String username) {
         return hasText(username) ? QMember.member.username.eq(username) : null;
     }
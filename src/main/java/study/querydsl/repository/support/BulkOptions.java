@@ -0,0 +1,35 @@
+package study.querydsl.repository.support;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.util.Assert;
+
+// 대량 수정/삭제 옵션 (ChunkedBulkExecutor)
+@Getter
+public class BulkOptions {
+
+    private final int chunkSize; // 트랜잭션 하나에서 처리하는 대상 row 수 (id 범위로만 나누면 id 범위 크기)
+    private final int parallelism; // 동시에 처리하는 chunk 수
+    private final BulkProgressListener listener;
+
+    @Builder
+    private BulkOptions(int chunkSize, int parallelism, BulkProgressListener listener) {
+        Assert.isTrue(chunkSize > 0, "chunkSize must be greater than 0: " + chunkSize);
+        Assert.isTrue(parallelism > 0, "parallelism must be greater than 0: " + parallelism);
+        Assert.notNull(listener, "listener must not be null");
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.listener = listener;
+    }
+
+    public static BulkOptions defaults() {
+        return BulkOptions.builder().build();
+    }
+
+    // 기본값 (나머지 builder 코드는 lombok이 생성)
+    public static class BulkOptionsBuilder {
+        private int chunkSize = 1000;
+        private int parallelism = 1;
+        private BulkProgressListener listener = BulkProgressListener.NONE;
+    }
+}
@@ -0,0 +1,11 @@
+package study.querydsl.repository.support;
+
+// chunk 하나가 커밋될 때마다 호출된다. (여러 스레드에서 동시에 호출될 수 있다)
+@FunctionalInterface
+public interface BulkProgressListener {
+
+    BulkProgressListener NONE = (completedChunks, totalChunks, affectedRows) -> {
+    };
+
+    void onChunkCompleted(long completedChunks, long totalChunks, long affectedRows);
+}
@@ -0,0 +1,232 @@
+package study.querydsl.repository.support;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 대량 수정/삭제 실행기
+ *
+ * 테이블 전체를 한 번의 update/delete로 처리하면 대상 row 전체에 lock이 걸린 채로 오래 유지된다.
+ * id 범위(chunk)로 나눠서 chunk마다 별도 트랜잭션으로 커밋하기 때문에 lock은 chunk 범위, chunk 처리 시간 동안만 유지된다.
+ * 처리가 끝나면 영향을 받은 엔티티를 현재 영속성 컨텍스트와 2차 캐시에서 제거한다.
+ *
+ * chunk는 새 트랜잭션(별도 커넥션)에서 실행되므로, 같은 row를 수정 중인 트랜잭션 안에서 호출하면 안 된다.
+ * 호출하는 쪽도 작업 전체를 감싸는 트랜잭션을 열지 않는다. (chunk가 도는 동안 커넥션 하나를 계속 잡고 있게 된다)
+ * 대상 id 범위 조회는 readOnly()로 짧은 읽기 전용 트랜잭션에서 실행한다.
+ */
+@Component
+public class ChunkedBulkExecutor {
+
+    private final EntityManager em;
+    private final TransactionTemplate chunkTransaction;
+    private final TransactionTemplate readOnlyTransaction;
+    private final CountQueryCache countQueryCache;
+    private final DataVersion dataVersion;
+
+    public ChunkedBulkExecutor(EntityManager em, PlatformTransactionManager transactionManager, CountQueryCache countQueryCache,
+                               DataVersion dataVersion) {
+        this.em = em;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.countQueryCache = countQueryCache;
+        this.dataVersion = dataVersion;
+    }
+
+    @FunctionalInterface
+    public interface ChunkAction {
+        // fromId <= id < toId 범위를 처리하고 영향을 받은 row 수를 반환
+        long execute(long fromId, long toId);
+    }
+
+    // 대상 id 범위 조회 같은 짧은 조회를 읽기 전용 트랜잭션에서 실행한다. (트랜잭션이 이미 있으면 참여)
+    public <T> T readOnly(Supplier<T> query) {
+        return readOnlyTransaction.execute(status -> query.get());
+    }
+
+    /**
+     * @param entityClass 수정/삭제 대상 엔티티 (처리 후 캐시에서 제거)
+     * @param minId       대상 id 최솟값 (대상이 없으면 null)
+     * @param maxId       대상 id 최댓값 (대상이 없으면 null)
+     * @return 영향을 받은 전체 row 수
+     */
+    public long execute(Class<?> entityClass, Long minId, Long maxId, BulkOptions options, ChunkAction action) {
+        if (minId == null || maxId == null) {
+            return 0;
+        }
+        long chunkSize = options.getChunkSize();
+        long totalChunks = (maxId - minId) / chunkSize + 1;
+        return run(entityClass, new ChunkRanges(minId, maxId,
+                fromId -> maxId - fromId >= chunkSize ? fromId + chunkSize : null), totalChunks, options, action);
+    }
+
+    /**
+     * 조건에 맞는 id를 keyset으로 나눈다. chunk마다 대상 row가 chunkSize건까지 포함되므로
+     * 대상이 드문드문 있어도 빈 chunk 트랜잭션을 만들지 않는다.
+     *
+     * @param totalRows      대상 row 수 (진행 상황의 전체 chunk 수 계산용)
+     * @param nextChunkStart 다음 chunk의 첫 id - fromId 이상인 대상 id를 chunkSize건 건너뛴 id (없으면 null)
+     */
+    public long execute(Class<?> entityClass, Long minId, Long maxId, long totalRows, NextChunkStart nextChunkStart,
+                        BulkOptions options, ChunkAction action) {
+        if (minId == null || maxId == null) {
+            return 0;
+        }
+        long totalChunks = Math.max(1, (totalRows + options.getChunkSize() - 1) / options.getChunkSize());
+        return run(entityClass, new ChunkRanges(minId, maxId, nextChunkStart), totalChunks, options, action);
+    }
+
+    // chunk 범위는 실행할 때마다 하나씩 만든다. (id 범위가 넓어도 미리 만들어 두는 범위/작업이 없다)
+    // parallelism이 1이면 호출한 스레드에서 순서대로, 아니면 최대 parallelism개의 chunk만 동시에 실행한다.
+    private long run(Class<?> entityClass, ChunkRanges ranges, long totalChunks, BulkOptions options, ChunkAction action) {
+        Chunks chunks = new Chunks(totalChunks, options.getListener(), action);
+        try {
+            if (options.getParallelism() == 1) {
+                for (long[] range = ranges.next(); range != null; range = ranges.next()) {
+                    chunks.execute(range);
+                }
+            } else {
+                runParallel(ranges, options.getParallelism(), chunks);
+            }
+        } finally {
+            evict(entityClass);
+        }
+        return chunks.affectedRows.get();
+    }
+
+    // 실패하면 더 이상 chunk를 시작하지 않고, 이미 실행 중인 chunk가 끝나기를 기다린 뒤 첫 번째 예외를 던진다.
+    private void runParallel(ChunkRanges ranges, int parallelism, Chunks chunks) {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+        Throwable failure = null;
+        int running = 0;
+        try {
+            long[] range = ranges.next();
+            while (range != null || running > 0) {
+                while (failure == null && range != null && running < parallelism) {
+                    long[] chunk = range;
+                    completion.submit(() -> {
+                        chunks.execute(chunk);
+                        return null;
+                    });
+                    running++;
+                    try {
+                        range = ranges.next();
+                    } catch (RuntimeException e) {
+                        failure = e;
+                        range = null;
+                    }
+                }
+                try {
+                    completion.take().get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                    range = null;
+                } finally {
+                    running--;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("대량 작업이 중단되었습니다.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new IllegalStateException("대량 작업에 실패했습니다.", failure);
+        }
+    }
+
+    @FunctionalInterface
+    public interface NextChunkStart {
+        // fromId에서 시작하는 chunk 다음 chunk의 첫 id (없으면 null)
+        Long after(long fromId);
+    }
+
+    // [fromId, 다음 chunk의 첫 id) 범위를 차례대로 만든다. 마지막 chunk는 maxId까지
+    private static class ChunkRanges {
+
+        private final long maxId;
+        private final NextChunkStart nextChunkStart;
+        private Long fromId;
+
+        ChunkRanges(long minId, long maxId, NextChunkStart nextChunkStart) {
+            this.maxId = maxId;
+            this.nextChunkStart = nextChunkStart;
+            this.fromId = minId;
+        }
+
+        long[] next() {
+            if (fromId == null) {
+                return null;
+            }
+            long from = fromId;
+            Long next = nextChunkStart.after(from);
+            fromId = next != null && next > from && next <= maxId ? next : null;
+            return new long[]{from, fromId != null ? fromId : maxId + 1};
+        }
+    }
+
+    // chunk 하나를 새 트랜잭션으로 실행하고 진행 상황을 알린다. (여러 스레드에서 호출된다)
+    private class Chunks {
+
+        private final long totalChunks;
+        private final BulkProgressListener listener;
+        private final ChunkAction action;
+        private final AtomicLong completedChunks = new AtomicLong();
+        private final AtomicLong affectedRows = new AtomicLong();
+
+        Chunks(long totalChunks, BulkProgressListener listener, ChunkAction action) {
+            this.totalChunks = totalChunks;
+            this.listener = listener;
+            this.action = action;
+        }
+
+        void execute(long[] range) {
+            Long affected = chunkTransaction.execute(status -> action.execute(range[0], range[1]));
+            long total = affectedRows.addAndGet(affected);
+            listener.onChunkCompleted(completedChunks.incrementAndGet(), totalChunks, total);
+        }
+    }
+
+    private void evict(Class<?> entityClass) {
+        em.getEntityManagerFactory().getCache().evict(entityClass);
+        countQueryCache.invalidateAll();
+        dataVersion.bump(); // chunk의 SQL은 DataChangeStatementInspector도 알리지만, 작업 전체가 끝난 시점에 한 번 더 올린다
+
+        // 호출한 쪽 트랜잭션의 영속성 컨텍스트에 남아있는 엔티티는 DB와 값이 달라졌으므로 준영속 상태로 만든다.
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            List<Object> stale = new ArrayList<>();
+            for (Object entity : em.unwrap(SessionImplementor.class).getPersistenceContextInternal().getEntitiesByKey().values()) {
+                if (entityClass.isInstance(entity)) {
+                    stale.add(entity);
+                }
+            }
+            stale.forEach(em::detach);
+        }
+    }
+}
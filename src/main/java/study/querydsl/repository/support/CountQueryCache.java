@@ -0,0 +1,76 @@
+package study.querydsl.repository.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 페이징 count 쿼리 결과 캐시
+ *
+ * 같은 검색 조건으로 다음 페이지를 누를 때마다 count 쿼리가 다시 실행되지 않도록 (도메인, 정규화된 조건) 단위로 total을 보관한다.
+ * TTL과 최대 크기로 오래된 값을 정리하고, 데이터가 바뀌면 invalidateAll()로 비운다.
+ * 아직 커밋되지 않은 변경이 있을 수 있는 쓰기 트랜잭션 안에서는 캐시를 사용하지 않는다.
+ */
+@Component
+public class CountQueryCache {
+
+    private final boolean enabled;
+    private final Cache<Object, Long> cache;
+    private final AtomicLong generation = new AtomicLong(); // invalidateAll() 횟수 (조회 중에 비워졌는지 확인)
+
+    public CountQueryCache(@Value("${querydsl.count-cache.enabled:true}") boolean enabled,
+                           @Value("${querydsl.count-cache.ttl-seconds:30}") long ttlSeconds,
+                           @Value("${querydsl.count-cache.maximum-size:1000}") long maximumSize) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    public long get(Class<?> domainClass, Object conditionKey, LongSupplier countQuery) {
+        if (!enabled || !isCacheableTransaction()) {
+            return countQuery.getAsLong();
+        }
+        // count 쿼리는 캐시 밖에서 실행한다. (cache.get(key, loader)는 ConcurrentHashMap.compute 안에서 실행되어 같은 bin의 다른 키까지 막는다)
+        // 같은 조건이 동시에 들어오면 count가 여러 번 실행될 수 있지만 결과는 같고, 조회 합치기는 SingleFlight가 담당한다.
+        Object key = Arrays.asList(domainClass, conditionKey);
+        Long cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long loadedGeneration = generation.get();
+        long total = countQuery.getAsLong();
+        if (generation.get() == loadedGeneration) { // 조회 중에 데이터가 바뀌었으면 이전 값을 다시 넣지 않는다
+            cache.put(key, total);
+        }
+        return total;
+    }
+
+    // count 쿼리를 실행하지 않고 캐시에 남아있는 값만 확인 (total 추정용)
+    public OptionalLong peek(Class<?> domainClass, Object conditionKey) {
+        if (!enabled) {
+            return OptionalLong.empty();
+        }
+        Long total = cache.getIfPresent(Arrays.asList(domainClass, conditionKey));
+        return total == null ? OptionalLong.empty() : OptionalLong.of(total);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    private static boolean isCacheableTransaction() {
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+}
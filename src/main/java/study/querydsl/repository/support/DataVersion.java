@@ -0,0 +1,64 @@
+package study.querydsl.repository.support;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 회원/팀 데이터 버전 (결과 캐시 키, ETag)
+ *
+ * 쓰기가 일어날 때마다 증가한다. 트랜잭션 안에서 호출되면 트랜잭션마다 한 번만, 트랜잭션이 끝난 뒤에 증가시킨다.
+ * (커밋 전에 다른 요청이 이전 데이터를 새 버전으로 캐시해 두는 경우를 막기 위함)
+ * ETag에는 시작할 때 만든 임의의 epoch를 붙여서 애플리케이션이 다시 떠도 이전 ETag와 겹치지 않게 한다.
+ * 버전은 인스턴스 메모리에만 있으므로 여러 인스턴스로 띄울 때는 공유 저장소로 옮겨야 한다.
+ * 마지막으로 증가한 시각도 기록한다. (replica 라우팅 시 변경 직후의 조회를 primary로 보내는 용도)
+ */
+@Component
+public class DataVersion {
+
+    private final String epoch = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong version = new AtomicLong();
+    private volatile long changedAt = System.nanoTime() - Long.MAX_VALUE / 2; // 아직 변경이 없으면 아주 오래 전
+
+    // 상태가 없으므로 모든 트랜잭션에서 같은 객체를 등록한다. (이미 등록되어 있는지 확인하는 용도)
+    private final TransactionSynchronization bumpAfterCompletion = new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+            increment();
+        }
+    };
+
+    public long current() {
+        return version.get();
+    }
+
+    // epoch + 버전 (ETag 용)
+    public String tag() {
+        return epoch + "-" + version.get();
+    }
+
+    // window 안에 버전이 증가했는지 (변경된 데이터가 replica까지 복제되지 않았을 수 있는 구간)
+    public boolean changedWithin(Duration window) {
+        return System.nanoTime() - changedAt < window.toNanos();
+    }
+
+    public void bump() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            increment();
+            return;
+        }
+        // REQUIRES_NEW로 중첩된 트랜잭션은 synchronization 목록이 따로 있으므로 각각 한 번씩 등록된다
+        if (!TransactionSynchronizationManager.getSynchronizations().contains(bumpAfterCompletion)) {
+            TransactionSynchronizationManager.registerSynchronization(bumpAfterCompletion);
+        }
+    }
+
+    private void increment() {
+        changedAt = System.nanoTime(); // 새 버전을 읽은 조회가 replica로 가지 않도록 버전보다 먼저 기록한다
+        version.incrementAndGet();
+    }
+}
@@ -0,0 +1,24 @@
+package study.querydsl.repository.support;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * total이 추정값일 수 있는 페이지 (count 쿼리를 실행하지 않는다)
+ * totalExact가 false이면 getTotalElements(), getTotalPages()는 "약 Y 페이지" 용도로만 사용한다.
+ */
+public class EstimatedPage<T> extends PageImpl<T> {
+
+    private final boolean totalExact;
+
+    public EstimatedPage(List<T> content, Pageable pageable, long total, boolean totalExact) {
+        super(content, pageable, total);
+        this.totalExact = totalExact;
+    }
+
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+}
@@ -0,0 +1,155 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 페이징 쿼리(content + count) 실행기
+ *
+ * querydsl.paging.parallel-count=true 이면 count 쿼리를 별도 스레드(별도 커넥션)에서 content 쿼리와 동시에 실행한다.
+ * 다른 커넥션은 현재 트랜잭션에서 아직 커밋하지 않은 데이터를 보지 못하기 때문에, 쓰기 트랜잭션 안에서 호출되면 기존처럼 순서대로 실행한다.
+ * 읽기 전용 트랜잭션 안에서는 커밋하지 않은 데이터가 없으므로 동시에 실행하고, count 쿼리도 읽기 전용 트랜잭션으로 실행한다. (replica 라우팅)
+ *
+ * querydsl.metrics.enabled=true 이면 content/count 쿼리 시간을 따로 기록한다. (repository.page.query)
+ */
+@Component
+public class PagingQueryExecutor implements DisposableBean {
+
+    private final boolean parallelCount;
+    private final ExecutorService countExecutor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Timer contentTimer;
+    private final Timer countTimer;
+
+    public PagingQueryExecutor(@Value("${querydsl.paging.parallel-count:false}") boolean parallelCount,
+                               @Value("${querydsl.paging.count-threads:4}") int countThreads,
+                               @Value("${querydsl.metrics.enabled:false}") boolean metricsEnabled,
+                               ObjectProvider<MeterRegistry> meterRegistry,
+                               PlatformTransactionManager transactionManager) {
+        this.parallelCount = parallelCount;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        MeterRegistry registry = metricsEnabled ? meterRegistry.getIfAvailable() : null;
+        this.contentTimer = registry != null ? pageQueryTimer(registry, "content") : null;
+        this.countTimer = registry != null ? pageQueryTimer(registry, "count") : null;
+        // 크기가 제한된 pool + queue, 꽉 차면 호출한 스레드에서 count를 실행한다(순차 실행으로 자연스럽게 back pressure)
+        this.countExecutor = parallelCount
+                ? new ThreadPoolExecutor(countThreads, countThreads, 60, TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(countThreads * 16),
+                        new CustomizableThreadFactory("paging-count-"),
+                        new ThreadPoolExecutor.CallerRunsPolicy())
+                : null;
+    }
+
+    public <T> Page<T> getPage(Supplier<List<T>> contentQuery, Pageable pageable, LongSupplier countQuery) {
+        if (contentTimer != null) {
+            Supplier<List<T>> untimedContentQuery = contentQuery;
+            LongSupplier untimedCountQuery = countQuery;
+            contentQuery = () -> contentTimer.record(untimedContentQuery);
+            countQuery = () -> countTimer.record((Supplier<Long>) untimedCountQuery::getAsLong);
+        }
+        if (!parallelCount || (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly())) {
+            return PageableExecutionUtils.getPage(contentQuery.get(), pageable, countQuery);
+        }
+
+        LongSupplier readOnlyCountQuery = countQuery;
+        CompletableFuture<Long> total = CompletableFuture.supplyAsync(
+                () -> readOnlyTransaction.execute(status -> readOnlyCountQuery.getAsLong()), countExecutor);
+        List<T> content;
+        try {
+            content = contentQuery.get();
+        } catch (RuntimeException e) {
+            total.cancel(false);
+            throw e;
+        }
+        // 첫/마지막 페이지처럼 count가 필요 없는 경우에는 결과를 기다리지 않고,
+        // 아직 실행되지 않은 count 작업은 취소해서 커넥션을 쓰지 않도록 한다.
+        AtomicBoolean countUsed = new AtomicBoolean();
+        Page<T> page = PageableExecutionUtils.getPage(content, pageable, () -> {
+            countUsed.set(true);
+            return join(total);
+        });
+        if (!countUsed.get()) {
+            total.cancel(false);
+        }
+        return page;
+    }
+
+    /**
+     * count 쿼리 없이 total을 추정하는 페이지
+     * lookaheadQuery는 pageSize + 1건을 조회해야 한다. (다음 페이지 존재 여부 확인)
+     * - 다음 페이지가 없으면 total = offset + content 수 (정확한 값)
+     * - 마지막 페이지를 지난 요청(content 없음, offset > 0)이면 total은 offset보다 작다는 것만 알 수 있으므로 countQuery로 정확한 값을 구한다
+     * - 다음 페이지가 있고 캐시된 count가 있으면 그 값 (TTL 동안 유지된 근사값)
+     * - 둘 다 아니면 다음 페이지가 있다는 것까지만 반영한 하한값 (offset + pageSize + 1)
+     */
+    public <T> EstimatedPage<T> getEstimatedPage(Supplier<List<T>> lookaheadQuery, Pageable pageable, OptionalLong cachedTotal,
+                                                 LongSupplier countQuery) {
+        List<T> rows = contentTimer != null ? contentTimer.record(lookaheadQuery) : lookaheadQuery.get();
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        List<T> content = hasNext ? rows.subList(0, pageable.getPageSize()) : rows;
+
+        if (!hasNext && (!content.isEmpty() || pageable.getOffset() == 0)) {
+            return new EstimatedPage<>(content, pageable, pageable.getOffset() + content.size(), true);
+        }
+        if (content.isEmpty()) {
+            long total = countTimer != null ? countTimer.record((Supplier<Long>) countQuery::getAsLong) : countQuery.getAsLong();
+            return new EstimatedPage<>(content, pageable, total, true);
+        }
+        long lowerBound = pageable.getOffset() + content.size() + (hasNext ? 1 : 0);
+        if (cachedTotal.isPresent() && cachedTotal.getAsLong() >= lowerBound) {
+            return new EstimatedPage<>(content, pageable, cachedTotal.getAsLong(), false);
+        }
+        return new EstimatedPage<>(content, pageable, lowerBound, false);
+    }
+
+    private static Timer pageQueryTimer(MeterRegistry registry, String phase) {
+        return Timer.builder("repository.page.query")
+                .description("페이징 content/count 쿼리 실행 시간")
+                .tag("phase", phase)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+    }
+
+    private static long join(CompletableFuture<Long> total) {
+        try {
+            return total.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (countExecutor != null) {
+            countExecutor.shutdown();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package study.querydsl.repository.support;
 import com.querydsl.core.types.EntityPath;
 import com.querydsl.core.types.Expression;
 import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.JPQLQuery;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,13 +14,17 @@ import
         org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
 import org.springframework.data.jpa.repository.support.Querydsl;
 import org.springframework.data.querydsl.SimpleEntityPathResolver;
-import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 /**
  * Querydsl 4.x 버전에 맞춘 Querydsl 지원 라이브러리
  *
@@ -33,6 +38,8 @@ public abstract class Querydsl4RepositorySupport {
     private Querydsl querydsl;
     private EntityManager entityManager;
     private JPAQueryFactory queryFactory;
+    private PagingQueryExecutor pagingQueryExecutor;
+    private CountQueryCache countQueryCache;
     public Querydsl4RepositorySupport(Class<?> domainClass) {
         Assert.notNull(domainClass, "Domain class must not be null!");
         this.domainClass = domainClass;
@@ -49,11 +56,21 @@ public abstract class Querydsl4RepositorySupport {
                 PathBuilder<>(path.getType(), path.getMetadata()));
         this.queryFactory = new JPAQueryFactory(entityManager);
     }
+    @Autowired
+    public void setPagingQueryExecutor(PagingQueryExecutor pagingQueryExecutor) {
+        this.pagingQueryExecutor = pagingQueryExecutor;
+    }
+    @Autowired
+    public void setCountQueryCache(CountQueryCache countQueryCache) {
+        this.countQueryCache = countQueryCache;
+    }
     @PostConstruct
     public void validate() {
         Assert.notNull(entityManager, "EntityManager must not be null!");
         Assert.notNull(querydsl, "Querydsl must not be null!");
         Assert.notNull(queryFactory, "QueryFactory must not be null!");
+        Assert.notNull(pagingQueryExecutor, "PagingQueryExecutor must not be null!");
+        Assert.notNull(countQueryCache, "CountQueryCache must not be null!");
     }
     protected JPAQueryFactory getQueryFactory() {
         return queryFactory;
@@ -64,28 +81,104 @@ public abstract class Querydsl4RepositorySupport {
     protected EntityManager getEntityManager() {
         return entityManager;
     }
+    // 읽기 전용 트랜잭션에서는 읽기 전용 엔티티로 로딩한다. (dirty checking용 스냅샷 X, DTO 조회에는 영향 없음, ReadOnlyHint)
     protected <T> JPAQuery<T> select(Expression<T> expr) {
-        return getQueryFactory().select(expr);
+        return ReadOnlyHint.apply(getQueryFactory().select(expr));
     }
     protected <T> JPAQuery<T> selectFrom(EntityPath<T> from) {
-        return getQueryFactory().selectFrom(from);
+        return ReadOnlyHint.apply(getQueryFactory().selectFrom(from));
+    }
+    private static void readOnly(JPAQuery<?> query) {
+        ReadOnlyHint.apply(query);
+    }
+    /**
+     * content 쿼리에서 order by와 참조하지 않는 left join을 제거한 count 쿼리를 실행한다. {@link QuerydslCountQueries}
+     */
+    protected long countOf(JPAQuery<?> query) {
+        return QuerydslCountQueries.count(entityManager, query);
     }
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery) {
         JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable,
-                jpaQuery).fetch();
-        return PageableExecutionUtils.getPage(content, pageable,
-                jpaQuery::fetchCount);
+        readOnly(jpaQuery);
+        JPQLQuery<T> pagedContentQuery = getQuerydsl().applyPagination(pageable,
+                jpaQuery);
+        return pagingQueryExecutor.getPage(pagedContentQuery::fetch, pageable,
+                () -> countOf(jpaQuery)); // countOf는 offset/limit, order by를 제외한다
     }
     protected <T> Page<T> applyPagination(Pageable pageable,
                                           Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
             JPAQuery> countQuery) {
         JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable,
-                jpaContentQuery).fetch();
+        readOnly(jpaContentQuery);
+        JPQLQuery<T> pagedContentQuery = getQuerydsl().applyPagination(pageable,
+                jpaContentQuery);
+        JPAQuery countResult = countQuery.apply(getQueryFactory());
+        return pagingQueryExecutor.getPage(pagedContentQuery::fetch, pageable,
+                () -> countOf(countResult));
+    }
+    /**
+     * countCacheKey가 같은 요청의 total은 {@link CountQueryCache}에서 재사용한다.
+     * countCacheKey는 count 쿼리의 결과를 결정하는 조건(정규화된 검색 조건 등)이어야 한다.
+     */
+    protected <T> Page<T> applyPagination(Pageable pageable,
+                                          Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory,
+            JPAQuery> countQuery, Object countCacheKey) {
+        JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
+        readOnly(jpaContentQuery);
+        JPQLQuery<T> pagedContentQuery = getQuerydsl().applyPagination(pageable,
+                jpaContentQuery);
+        JPAQuery countResult = countQuery.apply(getQueryFactory());
+        return pagingQueryExecutor.getPage(pagedContentQuery::fetch, pageable,
+                () -> countQueryCache.get(domainClass, countCacheKey, () -> countOf(countResult)));
+    }
+    /**
+     * count 쿼리 없이 total을 추정하는 페이징 (pageSize + 1건을 조회해서 다음 페이지 여부를 확인)
+     * countCacheKey로 캐시된 count가 있으면 추정값으로 사용한다. {@link PagingQueryExecutor#getEstimatedPage}
+     */
+    protected <T> EstimatedPage<T> applyEstimatedPagination(Pageable pageable,
+                                                            Function<JPAQueryFactory, JPAQuery> contentQuery, Object countCacheKey) {
+        JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
+        readOnly(jpaContentQuery);
+        getQuerydsl().applySorting(pageable.getSort(), jpaContentQuery);
+        jpaContentQuery.offset(pageable.getOffset())
+                .limit(pageable.getPageSize() + 1);
+        return pagingQueryExecutor.getEstimatedPage(jpaContentQuery::fetch, pageable,
+                countQueryCache.peek(domainClass, countCacheKey),
+                () -> countQueryCache.get(domainClass, countCacheKey, () -> countOf(jpaContentQuery)));
+    }
+    /**
+     * 2단계 페이징
+     * 1단계에서 id만 조회하는 좁은 쿼리로 정렬/offset/limit을 처리하고, 2단계에서 그 페이지의 id(where id in ...)로만 content를 조회한다.
+     * join이 많거나 row가 넓은 쿼리에서 DB가 정렬하고 건너뛰는 데이터 양이 줄어든다. content는 1단계 id 순서대로 반환한다.
+     */
+    protected <T, ID> Page<T> applyIdPagination(Pageable pageable,
+                                                Function<JPAQueryFactory, JPAQuery<ID>> idQuery,
+                                                BiFunction<JPAQueryFactory, List<ID>, JPAQuery<T>> contentQuery,
+                                                Function<T, ID> idExtractor,
+                                                Function<JPAQueryFactory, JPAQuery> countQuery) {
+        JPQLQuery<ID> pagedIdQuery = getQuerydsl().applyPagination(pageable,
+                idQuery.apply(getQueryFactory()));
         JPAQuery countResult = countQuery.apply(getQueryFactory());
-        return PageableExecutionUtils.getPage(content, pageable,
-                countResult::fetchCount);
+        return pagingQueryExecutor.getPage(() -> {
+            List<ID> ids = pagedIdQuery.fetch();
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+            JPAQuery<T> pageContentQuery = contentQuery.apply(getQueryFactory(), ids);
+            readOnly(pageContentQuery);
+            List<T> content = pageContentQuery.fetch();
+            return orderByIds(ids, content, idExtractor);
+        }, pageable, () -> countOf(countResult));
+    }
+    private static <T, ID> List<T> orderByIds(List<ID> ids, List<T> content, Function<T, ID> idExtractor) {
+        Map<ID, T> contentById = new HashMap<>();
+        for (T row : content) {
+            contentById.put(idExtractor.apply(row), row);
+        }
+        return ids.stream()
+                .map(contentById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 }
@@ -0,0 +1,184 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.core.DefaultQueryMetadata;
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinType;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.QueryModifiers;
+import com.querydsl.core.types.CollectionExpression;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.TemplateExpression;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.JPAQueryMixin;
+import com.querydsl.jpa.impl.JPAQuery;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * content 쿼리로부터 count 쿼리를 만든다. (Querydsl 5에서 deprecated 된 fetchResults(), fetchCount() 대체)
+ * - order by, offset/limit, fetch join을 제거한다.
+ * - where/having/다른 join에서 참조하지 않는 to-one 연관관계 left join을 제거한다. (row 수가 바뀌지 않는 join)
+ * - select count(root) 로 조회한다. (hibernate가 count(root.id)로 변환)
+ * group by가 있는 쿼리는 그룹 수를 센다. 그룹 키가 하나이고 having이 없으면 count(distinct 그룹 키)로 DB에서 센다.
+ * 그 외에는 JPQL이 from절 서브쿼리를 지원하지 않으므로 그룹 키를 모두 조회해서 센다. (그룹 수만큼 row를 읽는다)
+ */
+public final class QuerydslCountQueries {
+
+    private QuerydslCountQueries() {
+    }
+
+    public static long count(EntityManager em, JPAQuery<?> query) {
+        QueryMetadata source = query.getMetadata();
+        if (!source.getGroupBy().isEmpty()) {
+            return countGroups(em, query);
+        }
+        Expression<?> root = alias(source.getJoins().get(0));
+        Ops.AggOps count = source.isDistinct() ? Ops.AggOps.COUNT_DISTINCT_AGG : Ops.AggOps.COUNT_AGG;
+        Long total = countQuery(em, source, ExpressionUtils.operation(Long.class, count, root)).fetchOne();
+        return total == null ? 0 : total;
+    }
+
+    private static JPAQuery<Long> countQuery(EntityManager em, QueryMetadata source, Expression<Long> projection) {
+        List<JoinExpression> joins = source.getJoins();
+        Set<Expression<?>> referenced = new HashSet<>();
+        collectRoots(projection, referenced);
+        collectRoots(source.getWhere(), referenced);
+        collectRoots(source.getHaving(), referenced);
+
+        // 뒤쪽 join부터 필요 여부를 판단한다. (남긴 join이 참조하는 앞쪽 join은 남겨야 한다)
+        boolean[] keep = new boolean[joins.size()];
+        for (int i = joins.size() - 1; i >= 0; i--) {
+            JoinExpression join = joins.get(i);
+            keep[i] = i == 0 || !isRemovable(join) || referenced.contains(alias(join));
+            if (keep[i]) {
+                collectRoots(join.getTarget(), referenced);
+                collectRoots(join.getCondition(), referenced);
+            }
+        }
+
+        DefaultQueryMetadata metadata = new DefaultQueryMetadata();
+        for (int i = 0; i < joins.size(); i++) {
+            if (!keep[i]) {
+                continue;
+            }
+            JoinExpression join = joins.get(i);
+            metadata.addJoin(join.getType(), join.getTarget());
+            if (join.getCondition() != null) {
+                metadata.addJoinCondition(join.getCondition());
+            }
+            join.getFlags().stream()
+                    .filter(flag -> !JPAQueryMixin.FETCH.equals(flag) && !JPAQueryMixin.FETCH_ALL_PROPERTIES.equals(flag))
+                    .forEach(metadata::addJoinFlag);
+        }
+        if (source.getWhere() != null) {
+            metadata.addWhere(source.getWhere());
+        }
+        if (source.getHaving() != null) {
+            metadata.addHaving(source.getHaving());
+        }
+        copyParams(source, metadata);
+
+        metadata.setProjection(projection);
+        return new JPAQuery<>(em, metadata);
+    }
+
+    private static long countGroups(EntityManager em, JPAQuery<?> query) {
+        QueryMetadata source = query.getMetadata();
+        if (source.getGroupBy().size() == 1 && source.getHaving() == null) {
+            // count(distinct)는 null을 세지 않으므로 그룹 키가 null인 그룹이 있으면 1을 더한다
+            Expression<?> key = source.getGroupBy().get(0);
+            NumberExpression<Long> nullGroup = new CaseBuilder()
+                    .when(Expressions.predicate(Ops.IS_NULL, key)).then(1L)
+                    .otherwise(0L)
+                    .max();
+            Expression<Long> groupCount = Expressions.numberOperation(Long.class, Ops.ADD,
+                    ExpressionUtils.operation(Long.class, Ops.AggOps.COUNT_DISTINCT_AGG, key), nullGroup);
+            Long total = countQuery(em, source, groupCount).fetchOne();
+            return total == null ? 0 : total;
+        }
+        JPAQuery<?> groups = query.clone();
+        groups.getMetadata().clearOrderBy();
+        groups.getMetadata().setModifiers(QueryModifiers.EMPTY);
+        return groups.select(query.getMetadata().getGroupBy().get(0)).fetch().size();
+    }
+
+    // 연관관계 경로(member.team)로 left join 한 to-one 대상만 제거한다.
+    // 컬렉션 join이나 on절만 있는 join은 row 수가 바뀔 수 있으므로 남긴다.
+    private static boolean isRemovable(JoinExpression join) {
+        if (join.getType() != JoinType.LEFTJOIN || join.getCondition() != null) {
+            return false;
+        }
+        if (!(join.getTarget() instanceof Operation)) {
+            return false;
+        }
+        Expression<?> associationPath = ((Operation<?>) join.getTarget()).getArg(0);
+        return associationPath instanceof Path
+                && ((Path<?>) associationPath).getMetadata().getParent() != null
+                && !(associationPath instanceof CollectionExpression);
+    }
+
+    private static Expression<?> alias(JoinExpression join) {
+        Expression<?> target = join.getTarget();
+        if (target instanceof Operation && ((Operation<?>) target).getOperator() == Ops.ALIAS) {
+            return ((Operation<?>) target).getArg(1);
+        }
+        return target;
+    }
+
+    private static void collectRoots(Expression<?> expr, Set<Expression<?>> roots) {
+        if (expr == null) {
+            return;
+        }
+        if (expr instanceof Path) {
+            roots.add(((Path<?>) expr).getRoot());
+        } else if (expr instanceof Operation) {
+            for (Expression<?> arg : ((Operation<?>) expr).getArgs()) {
+                collectRoots(arg, roots);
+            }
+        } else if (expr instanceof FactoryExpression) {
+            for (Expression<?> arg : ((FactoryExpression<?>) expr).getArgs()) {
+                collectRoots(arg, roots);
+            }
+        } else if (expr instanceof TemplateExpression) {
+            for (Object arg : ((TemplateExpression<?>) expr).getArgs()) {
+                if (arg instanceof Expression) {
+                    collectRoots((Expression<?>) arg, roots);
+                }
+            }
+        } else if (expr instanceof SubQueryExpression) {
+            QueryMetadata subQuery = ((SubQueryExpression<?>) expr).getMetadata();
+            List<Expression<?>> parts = new ArrayList<>();
+            parts.add(subQuery.getProjection());
+            parts.add(subQuery.getWhere());
+            parts.add(subQuery.getHaving());
+            for (JoinExpression join : subQuery.getJoins()) {
+                parts.add(join.getTarget());
+                parts.add(join.getCondition());
+            }
+            for (Expression<?> part : parts) {
+                collectRoots(part, roots);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void copyParams(QueryMetadata source, QueryMetadata target) {
+        for (Map.Entry<ParamExpression<?>, Object> param : source.getParams().entrySet()) {
+            target.setParam((ParamExpression<Object>) param.getKey(), param.getValue());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import org.hibernate.annotations.QueryHints;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.TypedQuery;
+
+/**
+ * 읽기 전용 트랜잭션일 때만 org.hibernate.readOnly 힌트를 준다. (dirty checking용 스냅샷을 만들지 않는다)
+ *
+ * 호출한 쪽의 쓰기 트랜잭션에 참여한 조회는 힌트를 주지 않는다. (조회한 엔티티를 수정하면 반영되어야 한다)
+ */
+public final class ReadOnlyHint {
+
+    private ReadOnlyHint() {
+    }
+
+    public static <T> JPAQuery<T> apply(JPAQuery<T> query) {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                ? query.setHint(QueryHints.READ_ONLY, true) : query;
+    }
+
+    public static <T> TypedQuery<T> apply(TypedQuery<T> query) {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                ? query.setHint(QueryHints.READ_ONLY, true) : query;
+    }
+}
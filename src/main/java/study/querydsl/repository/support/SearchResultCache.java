@@ -0,0 +1,59 @@
+package study.querydsl.repository.support;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * 조회 결과 캐시
+ *
+ * (조회 이름, 정규화된 조건 + 페이지 + 정렬, 데이터 버전) 단위로 결과를 보관한다.
+ * 데이터가 바뀌면 버전이 올라가서 이전 결과는 다시 조회되지 않고 TTL/최대 크기로 정리된다.
+ * 조회 전에 버전을 읽기 때문에 조회 중에 데이터가 바뀌면 그 결과는 이전 버전으로 저장된다.
+ * 여러 요청이 같은 객체를 받으므로 DTO/Page처럼 읽기만 하는 결과에만 사용한다.
+ */
+@Component
+public class SearchResultCache {
+
+    private final boolean enabled;
+    private final DataVersion dataVersion;
+    private final Cache<Object, Object> cache;
+
+    public SearchResultCache(@Value("${querydsl.result-cache.enabled:true}") boolean enabled,
+                             @Value("${querydsl.result-cache.ttl-seconds:60}") long ttlSeconds,
+                             @Value("${querydsl.result-cache.maximum-size:10000}") long maximumSize,
+                             DataVersion dataVersion) {
+        this.enabled = enabled;
+        this.dataVersion = dataVersion;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String operation, Object key, Supplier<T> search) {
+        if (!enabled || (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly())) {
+            return search.get();
+        }
+        // 조회는 캐시 밖에서 실행한다. (cache.get(key, loader)는 ConcurrentHashMap.compute 안에서 실행되어 같은 bin의 다른 키까지 막는다)
+        // 같은 키의 동시 조회는 search 쪽(MemberSearchCoalescer -> SingleFlight)에서 한 번으로 합친다.
+        Object cacheKey = Arrays.asList(operation, key, dataVersion.current());
+        Object cached = cache.getIfPresent(cacheKey);
+        if (cached != null) {
+            return (T) cached;
+        }
+        T result = search.get();
+        if (result != null) {
+            cache.put(cacheKey, result);
+        }
+        return result;
+    }
+}
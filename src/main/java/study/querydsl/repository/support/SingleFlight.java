@@ -0,0 +1,103 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 같은 조회가 동시에 여러 번 들어오면 하나만 실행하고 나머지는 그 결과를 함께 사용한다. (single-flight)
+ *
+ * 실행 중인 조회만 합치고 결과를 보관하지는 않는다. 먼저 들어온 요청이 끝나면 바로 제거된다.
+ * 여러 스레드가 같은 객체를 받으므로 DTO/Page처럼 읽기만 하는 결과에만 사용한다. (영속성 컨텍스트에 속한 엔티티 X)
+ * 커밋하지 않은 변경이 보여야 하는 쓰기 트랜잭션 안에서는 합치지 않는다.
+ * 키에 데이터 버전을 포함해서 데이터가 바뀐 뒤에 들어온 요청은 바뀌기 전에 시작한 조회에 합치지 않는다. (SearchResultCache와 같은 버전)
+ * 먼저 실행한 조회가 wait-timeout-ms 안에 끝나지 않으면 기다리던 요청은 직접 조회한다. (먼저 실행한 조회가 멈춰도 같이 멈추지 않도록)
+ *
+ * 지표 : repository.search.calls (operation, result=executed|coalesced|timeout)
+ */
+@Component
+public class SingleFlight {
+
+    private final boolean enabled;
+    private final long waitTimeoutMillis;
+    private final DataVersion dataVersion;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<List<Object>, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlight(@Value("${querydsl.coalescing.enabled:true}") boolean enabled,
+                        @Value("${querydsl.coalescing.wait-timeout-ms:5000}") long waitTimeoutMillis,
+                        DataVersion dataVersion,
+                        ObjectProvider<MeterRegistry> meterRegistry) {
+        this.enabled = enabled;
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        this.dataVersion = dataVersion;
+        this.meterRegistry = meterRegistry.getIfAvailable();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, Object key, Supplier<T> call) {
+        if (!enabled || (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly())) {
+            return call.get();
+        }
+        List<Object> flightKey = Arrays.asList(operation, key, dataVersion.current());
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(flightKey, flight);
+        if (running != null) {
+            count(operation, "coalesced");
+            try {
+                return (T) join(running);
+            } catch (TimeoutException e) {
+                count(operation, "timeout");
+                return call.get();
+            }
+        }
+
+        count(operation, "executed");
+        try {
+            T result = call.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e); // 기다리던 요청도 같은 예외로 실패한다
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    private void count(String operation, String result) {
+        if (meterRegistry != null) {
+            meterRegistry.counter("repository.search.calls", "operation", operation, "result", result).increment();
+        }
+    }
+
+    private Object join(CompletableFuture<Object> flight) throws TimeoutException {
+        try {
+            return flight.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("조회 결과를 기다리다 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package study.querydsl.config;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.MemberSearchQueries;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// perf 프로파일 전용 빈이므로 직접 생성해서 확인한다
+// 옵티마이저가 테이블이 비어있다고 보고 전체 조회를 고르지 않도록 데이터를 넣고 같은 트랜잭션(커넥션)에서 EXPLAIN 한다
+@SpringBootTest
+@Transactional
+class MemberIndexAdvisorTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    EntityManagerFactory emf;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void before() {
+        Team[] teams = new Team[10];
+        for (int i = 0; i < teams.length; i++) {
+            teams[i] = new Team("team" + i);
+            em.persist(teams[i]);
+        }
+        for (int i = 0; i < 1000; i++) {
+            em.persist(new Member("member" + i, i % 100, teams[i % teams.length]));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void report() {
+        MemberIndexAdvisor advisor = new MemberIndexAdvisor(emf, jdbcTemplate);
+
+        Map<String, Object> report = advisor.report();
+
+        List<Map<String, Object>> shapes = (List<Map<String, Object>>) report.get("shapes");
+        //조건이 없는 shape(0)는 제외
+        Assertions.assertThat(shapes).hasSize(MemberSearchQueries.SHAPE_COUNT - 1);
+        for (Map<String, Object> shape : shapes) {
+            Assertions.assertThat((String) shape.get("plan")).containsIgnoringCase("select");
+            Collection<String> conditions = (Collection<String>) shape.get("conditions");
+            Assertions.assertThat(conditions).isNotEmpty();
+            //username 조건은 idx_member_username을 사용하므로 member 테이블을 전체 조회하지 않는다
+            if (conditions.contains("username")) {
+                Assertions.assertThat((Collection<String>) shape.get("tableScans")).doesNotContain("member");
+            }
+        }
+
+        //팀 이름 + 나이 : 팀 이름 인덱스로 팀을 찾고, (team_id, age) 인덱스로 그 팀의 회원을 나이 범위로 찾는다
+        Map<String, Object> teamAge = shape(shapes, "teamName", "ageGoe", "ageLoe");
+        Assertions.assertThat((Collection<String>) teamAge.get("indexes")).contains("idx_team_name", "idx_member_team_age");
+        Assertions.assertThat((Collection<String>) teamAge.get("tableScans")).isEmpty();
+
+        //나이만 : (age, member_id) 인덱스로 범위 조회
+        Map<String, Object> age = shape(shapes, "ageGoe", "ageLoe");
+        Assertions.assertThat((Collection<String>) age.get("indexes")).contains("idx_member_age_id");
+        Assertions.assertThat((Collection<String>) age.get("tableScans")).doesNotContain("member");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> shape(List<Map<String, Object>> shapes, String... conditions) {
+        return shapes.stream()
+                .filter(shape -> ((Collection<String>) shape.get("conditions")).containsAll(List.of(conditions))
+                        && ((Collection<String>) shape.get("conditions")).size() == conditions.length)
+                .findFirst()
+                .orElseThrow();
+    }
+}
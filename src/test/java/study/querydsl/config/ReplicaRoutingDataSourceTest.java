@@ -0,0 +1,77 @@
+package study.querydsl.config;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 메모리 H2 3개(primary, replica 2개)로 라우팅만 확인
+class ReplicaRoutingDataSourceTest {
+
+    AtomicBoolean recentlyWritten = new AtomicBoolean();
+    ReplicaRoutingDataSource routingDataSource = routing(ReplicaDataSourceProperties.Selection.ROUND_ROBIN, recentlyWritten);
+
+    @AfterEach
+    void clear() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void writeGoesToPrimary() throws SQLException {
+        Assertions.assertThat(url(routingDataSource)).contains("primary");
+    }
+
+    @Test
+    public void readOnlyRoundRobin() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        Assertions.assertThat(url(routingDataSource)).contains("replica0");
+        Assertions.assertThat(url(routingDataSource)).contains("replica1");
+        Assertions.assertThat(url(routingDataSource)).contains("replica0");
+    }
+
+    @Test
+    public void readOnlyLeastLatency() throws SQLException {
+        ReplicaRoutingDataSource leastLatency = routing(ReplicaDataSourceProperties.Selection.LEAST_LATENCY, new AtomicBoolean());
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        Assertions.assertThat(url(leastLatency)).contains("replica");
+    }
+
+    @Test
+    public void readOnlyAfterWriteGoesToPrimary() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        recentlyWritten.set(true);
+
+        //변경 직후에는 replica에 아직 복제되지 않았을 수 있으므로 primary에서 읽는다
+        Assertions.assertThat(url(routingDataSource)).contains("primary");
+
+        recentlyWritten.set(false);
+        Assertions.assertThat(url(routingDataSource)).contains("replica");
+    }
+
+    private static ReplicaRoutingDataSource routing(ReplicaDataSourceProperties.Selection selection,
+                                                    AtomicBoolean recentlyWritten) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(h2("primary"),
+                List.of(h2("replica0"), h2("replica1")), selection, recentlyWritten::get);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    private static DataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private static String url(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getMetaData().getURL();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package study.querydsl.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.MemberJpaRepository;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+
+@SpringBootTest(properties = "querydsl.metrics.enabled=true")
+@Transactional
+class RepositoryMetricsAspectTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    MeterRegistry meterRegistry;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Test
+    public void recordsRepositoryClassMethod() {
+        em.persist(new Member("metrics1", 10));
+        long calls = timerCount("MemberJpaRepository", "findByUsername", "success");
+        long rows = rowsCount("MemberJpaRepository", "findByUsername");
+
+        memberJpaRepository.findByUsername("metrics1");
+
+        Assertions.assertThat(timerCount("MemberJpaRepository", "findByUsername", "success")).isEqualTo(calls + 1);
+        Assertions.assertThat(rowsCount("MemberJpaRepository", "findByUsername")).isEqualTo(rows + 1);
+        Assertions.assertThat(meterRegistry.get("repository.rows")
+                .tag("repository", "MemberJpaRepository").tag("method", "findByUsername")
+                .summary().max()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void recordsSpringDataRepositoryMethod() {
+        em.persist(new Member("metrics1", 10));
+        em.persist(new Member("metrics1", 20));
+        em.flush();
+        long calls = timerCount("MemberRepository", "findByUsername", "success");
+
+        //spring data jpa 프록시는 구현 클래스 이름 대신 MemberRepository로 기록한다
+        Assertions.assertThat(memberRepository.findByUsername("metrics1")).hasSize(2);
+
+        Assertions.assertThat(timerCount("MemberRepository", "findByUsername", "success")).isEqualTo(calls + 1);
+    }
+
+    private long timerCount(String repository, String method, String outcome) {
+        Timer timer = meterRegistry.find("repository.method")
+                .tag("repository", repository).tag("method", method).tag("outcome", outcome)
+                .timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private long rowsCount(String repository, String method) {
+        DistributionSummary summary = meterRegistry.find("repository.rows")
+                .tag("repository", repository).tag("method", method)
+                .summary();
+        return summary == null ? 0 : summary.count();
+    }
+}
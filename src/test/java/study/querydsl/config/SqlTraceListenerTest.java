@@ -0,0 +1,43 @@
+package study.querydsl.config;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SqlTraceListenerTest {
+
+    @Test
+    public void fingerprint() {
+        String sql = "/* select m from Member m */ select member0_.member_id as member_i1_1_\n"
+                + "  from member member0_ where member0_.username='member1' and member0_.age>=10 and member0_.team_id in (?, ?, ?)";
+
+        Assertions.assertThat(SqlTraceListener.fingerprint(sql)).isEqualTo(
+                "select member0_.member_id as member_i1_1_ from member member0_ "
+                        + "where member0_.username=? and member0_.age>=? and member0_.team_id in (?)");
+    }
+
+    @Test
+    public void fingerprintSameShape() {
+        //값, in절 파라미터 수, 공백, 대소문자가 달라도 같은 SQL로 집계한다
+        Assertions.assertThat(SqlTraceListener.fingerprint("SELECT * FROM member WHERE name = 'it''s' AND id IN (?, ?)"))
+                .isEqualTo(SqlTraceListener.fingerprint("select *   from member where name = 'x' and id in (?,?,?,?)"));
+        //테이블/컬럼 이름의 숫자는 지우지 않는다
+        Assertions.assertThat(SqlTraceListener.fingerprint("select member_i1_1_ from member0_ limit 10"))
+                .isEqualTo("select member_i1_1_ from member0_ limit ?");
+    }
+
+    @Test
+    public void slowQueriesDoNotBiasAverage() {
+        SqlTraceListener.SqlStats stats = new SqlTraceListener.SqlStats("select ?");
+
+        stats.recordSampled(1_000_000);
+        stats.recordSampled(3_000_000);
+        stats.recordSlow(500_000_000, "select 1");
+
+        Assertions.assertThat(stats.getAverageMillis()).isEqualTo(2.0);
+        Assertions.assertThat(stats.getSlowAverageMillis()).isEqualTo(500.0);
+        Assertions.assertThat(stats.getSampledCount()).isEqualTo(2);
+        Assertions.assertThat(stats.getSlowCount()).isEqualTo(1);
+        Assertions.assertThat(stats.getMaxMillis()).isEqualTo(500.0);
+        Assertions.assertThat(stats.getSlowestSql()).isEqualTo("select 1");
+    }
+}
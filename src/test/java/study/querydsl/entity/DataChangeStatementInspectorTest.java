@@ -0,0 +1,63 @@
+package study.querydsl.entity;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.repository.MemberRepository;
+import study.querydsl.repository.support.DataVersion;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+// bulk 쿼리가 커밋된 뒤 데이터 버전이 올라가는지 확인해야 하므로 테스트 트랜잭션(롤백)을 사용하지 않는다
+// 대상 row가 없는 조건으로 실행한다 (SQL이 실행되기만 하면 변경으로 본다)
+@SpringBootTest
+class DataChangeStatementInspectorTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    DataVersion dataVersion;
+
+    @Test
+    public void changedEntity() {
+        Assertions.assertThat(DataChangeStatementInspector.changedEntity("update member set username=? where age<?")).isEqualTo(Member.class);
+        Assertions.assertThat(DataChangeStatementInspector.changedEntity("delete from team where name=?")).isEqualTo(Team.class);
+        Assertions.assertThat(DataChangeStatementInspector.changedEntity("/* insert study.querydsl.entity.Member */ insert into member (age, team_id, username, member_id) values (?, ?, ?, ?)"))
+                .isEqualTo(Member.class);
+        Assertions.assertThat(DataChangeStatementInspector.changedEntity("select member0_.member_id from member member0_")).isNull();
+        Assertions.assertThat(DataChangeStatementInspector.changedEntity("update member_seq set next_val=?")).isNull();
+        Assertions.assertThat(DataChangeStatementInspector.changedEntity("delete from hello")).isNull();
+    }
+
+    @Test
+    public void querydslBulkUpdateBumpsVersion() {
+        long version = dataVersion.current();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> new JPAQueryFactory(em)
+                .update(QMember.member)
+                .set(QMember.member.age, QMember.member.age.add(1))
+                .where(QMember.member.username.eq("inspector-none"))
+                .execute());
+
+        Assertions.assertThat(dataVersion.current()).isGreaterThan(version);
+    }
+
+    @Test
+    public void deleteAllByIdInBatchBumpsVersion() {
+        long version = dataVersion.current();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                memberRepository.deleteAllByIdInBatch(List.of(-1L)));
+
+        Assertions.assertThat(dataVersion.current()).isGreaterThan(version);
+    }
+}
@@ -1,10 +1,12 @@
 package study.querydsl.entity;
 
+import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.annotation.Commit;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.config.LazyLoadCounter;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -49,4 +51,72 @@ class MemberTest {
         }
     }
 
-}
\ No newline at end of file
+
+    @Test
+    public void batchFetchTeam(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        em.flush();
+        em.clear();
+
+        List<Member> members = em.createQuery("select m from Member m", Member.class).getResultList();
+
+        LazyLoadCounter.start();
+        for(Member member : members){
+            member.getTeam().getName(); // 프록시 초기화
+        }
+        //default_batch_fetch_size로 두 팀을 한번에 조회하기 때문에 지연 로딩 쿼리는 1번만 실행된다.
+        Assertions.assertThat(LazyLoadCounter.stop()).isEqualTo(1);
+    }
+
+    @Test
+    public void lazyLoadFromSecondLevelCache(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+
+        em.flush();
+        em.clear();
+
+        em.find(Team.class, teamA.getId()); // 2차 캐시에 적재
+        em.clear();
+
+        List<Member> members = em.createQuery("select m from Member m", Member.class).getResultList();
+
+        LazyLoadCounter.start();
+        members.get(0).getTeam().getName();
+        //2차 캐시에서 가져온 프록시 초기화는 DB 조회가 없으므로 세지 않는다
+        Assertions.assertThat(LazyLoadCounter.stop()).isEqualTo(0);
+    }
+
+    @Test
+    public void lazyLoadLimit(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+
+        em.flush();
+        em.clear();
+
+        List<Member> members = em.createQuery("select m from Member m", Member.class).getResultList();
+
+        //limit을 넘는 지연 로딩이 일어나는 순간 예외가 발생한다 (요청 처리 중 = 응답을 쓰기 전)
+        LazyLoadCounter.start(0);
+        try {
+            Assertions.assertThatThrownBy(() -> members.get(0).getTeam().getName())
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("N+1");
+        } finally {
+            LazyLoadCounter.stop();
+        }
+    }
+
+}
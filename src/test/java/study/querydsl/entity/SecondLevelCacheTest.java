@@ -0,0 +1,130 @@
+package study.querydsl.entity;
+
+import org.assertj.core.api.Assertions;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.repository.MemberRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// 2차 캐시는 커밋된 데이터만 담기 때문에 테스트 트랜잭션(롤백)을 사용하지 않고 직접 정리한다
+@SpringBootTest
+class SecondLevelCacheTest {
+
+    static final String TEAM_MEMBERS = "study.querydsl.entity.Team.members";
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    EntityManagerFactory emf;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MemberRepository memberRepository;
+
+    TransactionTemplate transactionTemplate;
+    Statistics statistics;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    public void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'cache%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'cache%'").executeUpdate();
+        });
+        emf.getCache().evictAll();
+    }
+
+    @Test
+    public void entityCache() {
+        Long teamId = transactionTemplate.execute(status -> {
+            Team team = new Team("cacheTeam");
+            em.persist(team);
+            return team.getId();
+        });
+        emf.getCache().evictAll();
+        statistics.clear();
+
+        //처음 조회하면 miss -> DB 조회 후 캐시에 저장
+        transactionTemplate.executeWithoutResult(status -> em.find(Team.class, teamId));
+        Assertions.assertThat(statistics.getSecondLevelCacheMissCount()).isEqualTo(1);
+        Assertions.assertThat(statistics.getSecondLevelCachePutCount()).isEqualTo(1);
+
+        //다른 영속성 컨텍스트에서 다시 조회하면 hit (쿼리 실행 X)
+        long queries = statistics.getPrepareStatementCount();
+        transactionTemplate.executeWithoutResult(status -> em.find(Team.class, teamId));
+        Assertions.assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(1);
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(queries);
+        Assertions.assertThat(emf.getCache().contains(Team.class, teamId)).isTrue();
+    }
+
+    @Test
+    public void queryCache() {
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Member("cacheMember", 10)));
+        emf.getCache().evictAll();
+        statistics.clear();
+
+        memberRepository.findByUsername("cacheMember");
+        Assertions.assertThat(statistics.getQueryCacheMissCount()).isEqualTo(1);
+        Assertions.assertThat(statistics.getQueryCachePutCount()).isEqualTo(1);
+
+        memberRepository.findByUsername("cacheMember");
+        Assertions.assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+
+        //Member 테이블이 바뀌면 쿼리 캐시 결과는 사용하지 않는다
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Member("cacheMember", 20)));
+        Assertions.assertThat(memberRepository.findByUsername("cacheMember")).hasSize(2);
+        Assertions.assertThat(statistics.getQueryCacheMissCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void collectionCacheEvictedWhenMemberMoves() {
+        Long[] ids = transactionTemplate.execute(status -> {
+            Team teamA = new Team("cacheTeamA");
+            Team teamB = new Team("cacheTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            Member member = new Member("cacheMember", 10, teamA);
+            em.persist(member);
+            return new Long[]{teamA.getId(), teamB.getId(), member.getId()};
+        });
+        Long teamAId = ids[0];
+        Long teamBId = ids[1];
+        Long memberId = ids[2];
+        Assertions.assertThat(membersOf(teamAId)).containsExactly("cacheMember");
+        Assertions.assertThat(membersOf(teamBId)).isEmpty();
+        Cache cache = emf.unwrap(SessionFactory.class).getCache();
+        Assertions.assertThat(cache.containsCollection(TEAM_MEMBERS, teamAId)).isTrue();
+
+        //연관관계 주인(Member.team)만 바꿔도 두 팀의 members 컬렉션 캐시가 비워진다
+        transactionTemplate.executeWithoutResult(status ->
+                em.find(Member.class, memberId).setTeam(em.find(Team.class, teamBId)));
+        Assertions.assertThat(cache.containsCollection(TEAM_MEMBERS, teamAId)).isFalse();
+        Assertions.assertThat(cache.containsCollection(TEAM_MEMBERS, teamBId)).isFalse();
+
+        Assertions.assertThat(membersOf(teamAId)).isEmpty();
+        Assertions.assertThat(membersOf(teamBId)).containsExactly("cacheMember");
+    }
+
+    private List<String> membersOf(Long teamId) {
+        return transactionTemplate.execute(status -> em.find(Team.class, teamId).getMembers().stream()
+                .map(Member::getUsername)
+                .collect(Collectors.toList()));
+    }
+}
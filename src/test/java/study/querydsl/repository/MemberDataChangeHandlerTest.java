@@ -0,0 +1,87 @@
+package study.querydsl.repository;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.repository.support.CountQueryCache;
+import study.querydsl.repository.support.DataVersion;
+
+import javax.persistence.EntityManager;
+
+// 커밋 후에 count 캐시가 비워지는지 확인해야 하므로 테스트 트랜잭션(롤백)을 사용하지 않는다
+@SpringBootTest
+class MemberDataChangeHandlerTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MemberJpaRepository memberJpaRepository;
+    @Autowired
+    CountQueryCache countQueryCache;
+    @Autowired
+    DataVersion dataVersion;
+
+    @AfterEach
+    public void after() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                em.createQuery("delete from Member m where m.username like 'change%'").executeUpdate());
+    }
+
+    @Test
+    public void countCacheInvalidatedOnSave() {
+        countQueryCache.get(Member.class, "key", () -> 10L);
+        Assertions.assertThat(countQueryCache.peek(Member.class, "key")).hasValue(10L);
+
+        memberJpaRepository.save(new Member("change1", 10));
+
+        Assertions.assertThat(countQueryCache.peek(Member.class, "key")).isEmpty();
+    }
+
+    @Test
+    public void countCacheInvalidatedAfterCommit() {
+        countQueryCache.get(Member.class, "key", () -> 10L);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.persist(new Member("change1", 10));
+            em.persist(new Member("change2", 20));
+            em.flush();
+            //커밋 전에는 비우지 않는다
+            Assertions.assertThat(countQueryCache.peek(Member.class, "key")).hasValue(10L);
+        });
+
+        Assertions.assertThat(countQueryCache.peek(Member.class, "key")).isEmpty();
+    }
+
+    @Test
+    public void countCacheKeptOnRollback() {
+        countQueryCache.get(Member.class, "key", () -> 10L);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.persist(new Member("change1", 10));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        Assertions.assertThat(countQueryCache.peek(Member.class, "key")).hasValue(10L);
+    }
+
+    @Test
+    public void versionAdvancedOncePerWrite() {
+        long version = dataVersion.current();
+        memberJpaRepository.save(new Member("change1", 10));
+        Assertions.assertThat(dataVersion.current()).isEqualTo(version + 1);
+
+        //수정도 한 번만 올린다
+        Long id = memberJpaRepository.findByUsername("change1").get(0).getId();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                em.find(Member.class, id).setAge(20));
+        Assertions.assertThat(dataVersion.current()).isEqualTo(version + 2);
+    }
+}
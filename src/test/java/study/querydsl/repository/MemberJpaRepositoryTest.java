@@ -4,6 +4,9 @@ import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.transaction.annotation.Transactional;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
@@ -11,7 +14,9 @@ import study.querydsl.entity.Member;
 import study.querydsl.entity.Team;
 
 import javax.persistence.EntityManager;
+import javax.persistence.PersistenceUnitUtil;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -72,6 +77,173 @@ class MemberJpaRepositoryTest {
     }
 
 
+    @Test
+    public void searchStreamTest(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        //fetchSize보다 많은 row도 끝까지 넘겨준다
+        List<MemberTeamDto> result = new ArrayList<>();
+        long count = memberJpaRepository.searchStream(condition, 2, result::add);
+
+        Assertions.assertThat(count).isEqualTo(4);
+        Assertions.assertThat(result).extracting("username").containsExactlyInAnyOrder("member2", "member3", "member4", "member5");
+        Assertions.assertThat(result).filteredOn("username", "member5").extracting("teamName").containsNull();
+        //DTO 조회라 영속성 컨텍스트를 비우지 않는다
+        Assertions.assertThat(em.contains(teamA)).isTrue();
+    }
+
+
+    @Test
+    public void searchShapeTest(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+
+        Member member3 = new Member("member3", 30, teamB);
+        Member member4 = new Member("member4", 40, teamB);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        //조건 조합(shape)이 달라도 같은 결과가 나와야 한다.
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("member2");
+        Assertions.assertThat(memberJpaRepository.searchByBuilder(condition)).extracting("username").containsExactly("member2");
+
+        condition = new MemberSearchCondition();
+        condition.setUsername(""); // 빈 문자열은 조건 없음
+        condition.setAgeLoe(20);
+        Assertions.assertThat(memberJpaRepository.search(condition)).extracting("username").containsExactlyInAnyOrder("member1", "member2");
+
+        condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+        condition.setAgeGoe(35);
+        Assertions.assertThat(memberJpaRepository.searchMember(condition)).containsExactly(member4);
+        Assertions.assertThat(memberJpaRepository.searchMemberByTemplate(condition)).containsExactly(member4);
+    }
+
+    @Test
+    public void searchByTemplateTest(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+        em.persist(new Member("member5", 50));
+
+        //미리 만들어 둔 JPQL과 Querydsl(where절 파라미터) 결과가 모든 조건 조합에서 같아야 한다
+        String[] usernames = {null, "member2"};
+        String[] teamNames = {null, "teamA"};
+        Integer[] ageGoes = {null, 20};
+        Integer[] ageLoes = {null, 40};
+        for (String username : usernames) {
+            for (String teamName : teamNames) {
+                for (Integer ageGoe : ageGoes) {
+                    for (Integer ageLoe : ageLoes) {
+                        MemberSearchCondition condition = new MemberSearchCondition();
+                        condition.setUsername(username);
+                        condition.setTeamName(teamName);
+                        condition.setAgeGoe(ageGoe);
+                        condition.setAgeLoe(ageLoe);
+
+                        Assertions.assertThat(memberJpaRepository.searchByTemplate(condition))
+                                .usingRecursiveFieldByFieldElementComparator()
+                                .containsExactlyInAnyOrderElementsOf(memberJpaRepository.search(condition));
+                        Assertions.assertThat(memberJpaRepository.searchMemberByTemplate(condition))
+                                .containsExactlyInAnyOrderElementsOf(memberJpaRepository.searchMember(condition));
+                    }
+                }
+            }
+        }
+    }
+
+
+    @Test
+    public void searchMemberPageFetchPlan(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("member" + i, 10 + i, i % 2 == 0 ? teamA : teamB));
+        }
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+
+        for (MemberFetchPlan fetchPlan : List.of(MemberFetchPlan.FETCH_JOIN, MemberFetchPlan.ENTITY_GRAPH)) {
+            Page<Member> page = memberJpaRepository.searchMemberPage(condition, PageRequest.of(1, 2), fetchPlan);
+
+            Assertions.assertThat(page.getTotalElements()).isEqualTo(5);
+            Assertions.assertThat(page.getContent()).extracting("username").containsExactly("member2", "member3");
+            Assertions.assertThat(page.getContent()).allMatch(member -> util.isLoaded(member.getTeam())); // 팀까지 같이 조회
+            em.clear();
+        }
+    }
+
+    @Test
+    public void entitiesWritableInCallerTransaction(){
+        em.persist(new Member("member1", 10));
+        em.flush();
+        em.clear();
+
+        //호출한 쪽의 쓰기 트랜잭션(테스트 트랜잭션)에 참여하면 readOnly 힌트를 주지 않으므로 변경 감지가 동작한다
+        Member member = memberJpaRepository.findByUsername("member1").get(0);
+        member.setAge(20);
+        em.flush();
+        em.clear();
+
+        Assertions.assertThat(memberJpaRepository.findByUsername_Querydsl("member1")).extracting("age").containsExactly(20);
+    }
+
+    @Test
+    public void searchMemberPageSort(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        for (int i = 0; i < 5; i++) {
+            em.persist(new Member("member" + i, 10 + i, teamA));
+        }
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        PageRequest pageRequest = PageRequest.of(0, 3, Sort.by(Sort.Direction.DESC, "age"));
+
+        for (MemberFetchPlan fetchPlan : MemberFetchPlan.values()) {
+            Page<Member> page = memberJpaRepository.searchMemberPage(condition, pageRequest, fetchPlan);
+
+            //id 쿼리의 정렬 순서가 조회 결과에도 그대로 유지된다
+            Assertions.assertThat(page.getContent()).extracting("username").containsExactly("member4", "member3", "member2");
+            em.clear();
+        }
+    }
+
+
 
 
 
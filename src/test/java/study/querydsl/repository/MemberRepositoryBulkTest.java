@@ -0,0 +1,76 @@
+package study.querydsl.repository;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.BulkOptions;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// bulk 메서드는 chunk마다 커밋하므로 테스트 트랜잭션(롤백)을 사용하지 않고 직접 정리한다
+@SpringBootTest
+class MemberRepositoryBulkTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MemberRepository memberRepository;
+
+    @AfterEach
+    public void after() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'bulk%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'bulk%'").executeUpdate();
+        });
+    }
+
+    @Test
+    public void bulkAddAge() {
+        List<Long> teamBIds = new TransactionTemplate(transactionManager).execute(status -> {
+            Team teamA = new Team("bulkTeamA");
+            Team teamB = new Team("bulkTeamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            Member member1 = new Member("bulk1", 10, teamB);
+            em.persist(member1);
+            for (int i = 3; i <= 10; i++) {
+                em.persist(new Member("bulk" + i, 30, teamA));
+            }
+            Member member2 = new Member("bulk2", 20, teamB);
+            em.persist(member2);
+            return List.of(member1.getId(), member2.getId());
+        });
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("bulkTeamB");
+        AtomicLong completedChunks = new AtomicLong();
+        AtomicLong totalChunks = new AtomicLong();
+        BulkOptions options = BulkOptions.builder()
+                .chunkSize(1)
+                .listener((completed, total, affected) -> {
+                    completedChunks.set(completed);
+                    totalChunks.set(total);
+                })
+                .build();
+
+        long affected = memberRepository.bulkAddAge(condition, 1, options);
+
+        Assertions.assertThat(affected).isEqualTo(2);
+        //조건에 맞는 회원 수만큼만 chunk로 나눈다 (사이에 있는 teamA 회원의 id 구간은 chunk를 만들지 않는다)
+        Assertions.assertThat(completedChunks.get()).isEqualTo(2);
+        Assertions.assertThat(totalChunks.get()).isEqualTo(2);
+        Assertions.assertThat(memberRepository.findAllById(teamBIds)).extracting("age").containsExactlyInAnyOrder(11, 21);
+        Assertions.assertThat(memberRepository.findByUsername("bulk3")).extracting("age").containsExactly(30);
+    }
+}
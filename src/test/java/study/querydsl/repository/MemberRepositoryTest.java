@@ -6,12 +6,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberCursor;
 import study.querydsl.dto.MemberSearchCondition;
 import study.querydsl.dto.MemberTeamDto;
 import study.querydsl.entity.Member;
 import study.querydsl.entity.QMember;
 import study.querydsl.entity.Team;
+import study.querydsl.repository.support.EstimatedPage;
 
 import javax.persistence.EntityManager;
 
@@ -102,6 +105,129 @@ class MemberRepositoryTest {
         Assertions.assertThat(result.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
     }
 
+    @Test
+    public void searchPageSimpleCount(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        //teamName 조건이 없으면 count 쿼리에서 team join이 빠진다
+        Page<MemberTeamDto> all = memberRepository.searchPageSimple(new MemberSearchCondition(), PageRequest.of(0, 3));
+        Assertions.assertThat(all.getTotalElements()).isEqualTo(4);
+
+        //teamName 조건이 있으면 join을 유지한다
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+        Page<MemberTeamDto> teamBPage = memberRepository.searchPageSimple(condition, PageRequest.of(0, 1));
+        Assertions.assertThat(teamBPage.getTotalElements()).isEqualTo(2);
+    }
+
+
+
+    @Test
+    public void searchPageEstimated(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 10, teamA);
+        Member member2 = new Member("member2", 20, teamA);
+
+        Member member3 = new Member("member3", 30, teamB);
+        Member member4 = new Member("member4", 40, teamB);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        //다음 페이지가 있으면 total은 하한값(추정)
+        EstimatedPage<MemberTeamDto> first = memberRepository.searchPageEstimated(condition, PageRequest.of(0, 3));
+        Assertions.assertThat(first.getContent()).hasSize(3);
+        Assertions.assertThat(first.hasNext()).isTrue();
+        Assertions.assertThat(first.isTotalExact()).isFalse();
+
+        //마지막 페이지에서는 total이 정확하다
+        EstimatedPage<MemberTeamDto> last = memberRepository.searchPageEstimated(condition, PageRequest.of(1, 3));
+        Assertions.assertThat(last.getContent()).hasSize(1);
+        Assertions.assertThat(last.isTotalExact()).isTrue();
+        Assertions.assertThat(last.getTotalElements()).isEqualTo(4);
+
+        //마지막 페이지를 지난 요청은 offset(하한값)이 아니라 정확한 total
+        EstimatedPage<MemberTeamDto> pastEnd = memberRepository.searchPageEstimated(condition, PageRequest.of(5, 3));
+        Assertions.assertThat(pastEnd.getContent()).isEmpty();
+        Assertions.assertThat(pastEnd.isTotalExact()).isTrue();
+        Assertions.assertThat(pastEnd.getTotalElements()).isEqualTo(4);
+        Assertions.assertThat(pastEnd.getTotalPages()).isEqualTo(2);
+    }
+
+
+    @Test
+    public void searchSlice(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        Member member1 = new Member("member1", 40, teamA);
+        Member member2 = new Member("member2", 30, teamA);
+
+        Member member3 = new Member("member3", 20, teamB);
+        Member member4 = new Member("member4", 10, teamB);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+        em.persist(member4);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        MemberCursor cursor = MemberCursor.first(true);
+
+        Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, cursor, 3);
+        Assertions.assertThat(first.hasNext()).isTrue();
+        Assertions.assertThat(first.getContent()).extracting("username").containsExactly("member4", "member3", "member2");
+
+        //토큰으로 주고받은 커서로 다음 페이지 조회
+        MemberCursor nextCursor = MemberCursor.decode(cursor.next(first.getContent().get(2)).encode());
+        Slice<MemberTeamDto> second = memberRepository.searchSlice(condition, nextCursor, 3);
+        Assertions.assertThat(second.hasNext()).isFalse();
+        Assertions.assertThat(second.getContent()).extracting("username").containsExactly("member1");
+    }
+
+    @Test
+    public void searchSliceById(){
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+
+        Member member1 = new Member("member1", 40, teamA);
+        Member member2 = new Member("member2", 30, teamA);
+        Member member3 = new Member("member3", 20, teamA);
+        em.persist(member1);
+        em.persist(member2);
+        em.persist(member3);
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        MemberCursor cursor = MemberCursor.first(false);
+
+        //id 순서 (나이와 무관)
+        Slice<MemberTeamDto> first = memberRepository.searchSlice(condition, cursor, 2);
+        Assertions.assertThat(first.hasNext()).isTrue();
+        Assertions.assertThat(first.getContent()).extracting("username").containsExactly("member1", "member2");
+
+        MemberCursor nextCursor = MemberCursor.decode(cursor.next(first.getContent().get(1)).encode());
+        Assertions.assertThat(nextCursor.isOrderByAge()).isFalse();
+        Slice<MemberTeamDto> second = memberRepository.searchSlice(condition, nextCursor, 2);
+        Assertions.assertThat(second.hasNext()).isFalse();
+        Assertions.assertThat(second.getContent()).extracting("username").containsExactly("member3");
+    }
+
 
 
     //spring data jpa에서 제공하는 querydsl기능을 인터페이스로 지원 받아 사용하는 방법
@@ -0,0 +1,207 @@
+package study.querydsl.repository;
+
+import com.p6spy.engine.common.PreparedStatementInformation;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import org.assertj.core.api.Assertions;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+import study.querydsl.repository.support.CountQueryCache;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// StatelessSession은 자체 트랜잭션으로 커밋하므로 테스트 트랜잭션(롤백)을 사용하지 않고 직접 정리한다
+@SpringBootTest
+class MemberStatelessRepositoryTest {
+
+    static final String TEAM_MEMBERS = "study.querydsl.entity.Team.members";
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    EntityManagerFactory emf;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    MemberStatelessRepository memberStatelessRepository;
+    @Autowired
+    MemberRepository memberRepository;
+    @Autowired
+    CountQueryCache countQueryCache;
+    @Autowired
+    MemberInsertCounter memberInsertCounter;
+
+    TransactionTemplate transactionTemplate;
+    Long teamId;
+    Long memberId;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            Team team = new Team("statelessTeam");
+            em.persist(team);
+            Member member = new Member("stateless", 10, team);
+            em.persist(member);
+            teamId = team.getId();
+            memberId = member.getId();
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member m where m.username like 'stateless%'").executeUpdate();
+            em.createQuery("delete from Team t where t.name like 'stateless%'").executeUpdate();
+        });
+        emf.getCache().evictAll();
+    }
+
+    @Test
+    public void insertAllEvictsCaches() {
+        fillCaches();
+
+        Team team = transactionTemplate.execute(status -> em.find(Team.class, teamId));
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            members.add(new Member("stateless", 20 + i, team));
+        }
+        long inserted = memberStatelessRepository.insertAll(members, 2);
+
+        Assertions.assertThat(inserted).isEqualTo(5);
+        assertEvicted();
+        //쿼리 캐시에 남아있던 이전 결과(1건)가 아니라 새로 조회한 결과
+        Assertions.assertThat(memberRepository.findByUsername("stateless")).hasSize(6);
+        Assertions.assertThat(membersOfTeam()).isEqualTo(6);
+    }
+
+    @Test
+    public void insertAllSendsOneBatchPerChunk() {
+        Team team = transactionTemplate.execute(status -> em.find(Team.class, teamId));
+        List<Member> members = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            members.add(new Member("stateless", 20 + i, team));
+        }
+        memberInsertCounter.reset();
+
+        memberStatelessRepository.insertAll(members, 2);
+
+        //chunk(2, 2, 1)마다 커밋할 때 JDBC batch 한 번으로 전송하고 한 건씩 실행하지 않는다
+        Assertions.assertThat(memberInsertCounter.batches.get()).isEqualTo(3);
+        Assertions.assertThat(memberInsertCounter.statements.get()).isZero();
+    }
+
+    @Test
+    public void updateAllEvictsCaches() {
+        fillCaches();
+
+        long updated = memberStatelessRepository.updateAll(10, 2, member -> {
+            if ("stateless".equals(member.getUsername())) {
+                member.setAge(member.getAge() + 1);
+            }
+        });
+
+        Assertions.assertThat(updated).isGreaterThanOrEqualTo(1);
+        assertEvicted();
+        Assertions.assertThat(memberRepository.findByUsername("stateless")).extracting("age").containsExactly(11);
+    }
+
+    @Test
+    public void scroll() {
+        fillCaches();
+
+        List<Member> result = new ArrayList<>();
+        long count = memberStatelessRepository.scroll(2, member -> {
+            if (member.getUsername().startsWith("stateless")) {
+                result.add(member);
+            }
+        });
+
+        Assertions.assertThat(count).isGreaterThanOrEqualTo(1);
+        Assertions.assertThat(result).extracting("id").containsExactly(memberId);
+        //fetch join으로 팀도 함께 조회 (지연 로딩 X)
+        Assertions.assertThat(result.get(0).getTeam().getName()).isEqualTo("statelessTeam");
+        //읽기만 하므로 캐시는 그대로
+        Assertions.assertThat(countQueryCache.peek(Member.class, "key")).hasValue(1L);
+        Assertions.assertThat(emf.getCache().contains(Member.class, memberId)).isTrue();
+    }
+
+    // 회원 엔티티, 팀 members 컬렉션, 쿼리 캐시, count 캐시를 채운다
+    private void fillCaches() {
+        countQueryCache.get(Member.class, "key", () -> 1L);
+        Assertions.assertThat(membersOfTeam()).isEqualTo(1);
+        Assertions.assertThat(memberRepository.findByUsername("stateless")).hasSize(1);
+
+        Cache cache = emf.unwrap(SessionFactory.class).getCache();
+        Assertions.assertThat(cache.containsEntity(Member.class, memberId)).isTrue();
+        Assertions.assertThat(cache.containsCollection(TEAM_MEMBERS, teamId)).isTrue();
+    }
+
+    private void assertEvicted() {
+        Cache cache = emf.unwrap(SessionFactory.class).getCache();
+        Assertions.assertThat(cache.containsEntity(Member.class, memberId)).isFalse();
+        Assertions.assertThat(cache.containsCollection(TEAM_MEMBERS, teamId)).isFalse();
+        Assertions.assertThat(countQueryCache.peek(Member.class, "key")).isEmpty();
+    }
+
+    private int membersOfTeam() {
+        return transactionTemplate.execute(status -> em.find(Team.class, teamId).getMembers().size());
+    }
+
+    // p6spy 리스너로 회원 insert가 JDBC batch로 실행된 횟수, 한 건씩 실행된 횟수를 센다
+    @TestConfiguration
+    static class MemberInsertCounterConfig {
+
+        @Bean
+        MemberInsertCounter memberInsertCounter() {
+            return new MemberInsertCounter();
+        }
+    }
+
+    static class MemberInsertCounter extends SimpleJdbcEventListener {
+
+        final AtomicInteger batches = new AtomicInteger();
+        final AtomicInteger statements = new AtomicInteger();
+
+        @Override
+        public void onAfterExecuteBatch(StatementInformation statementInformation, long timeElapsedNanos,
+                                        int[] updateCounts, SQLException e) {
+            if (isMemberInsert(statementInformation)) {
+                batches.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void onAfterExecuteUpdate(PreparedStatementInformation statementInformation, long timeElapsedNanos,
+                                         int rowCount, SQLException e) {
+            if (isMemberInsert(statementInformation)) {
+                statements.incrementAndGet();
+            }
+        }
+
+        void reset() {
+            batches.set(0);
+            statements.set(0);
+        }
+
+        private static boolean isMemberInsert(StatementInformation statementInformation) {
+            return statementInformation.getSql().toLowerCase().contains("insert into member");
+        }
+    }
+}
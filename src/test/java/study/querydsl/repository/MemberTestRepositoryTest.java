@@ -0,0 +1,74 @@
+package study.querydsl.repository;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.dto.MemberSearchCondition;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+
+@SpringBootTest
+@Transactional
+class MemberTestRepositoryTest {
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    MemberTestRepository memberTestRepository;
+
+    @BeforeEach
+    public void before(){
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 40, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 20, teamB));
+        em.persist(new Member("member5", 50, teamB));
+        em.persist(new Member("member6", 60));
+    }
+
+    @Test
+    public void applyIdPagination(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        //id 페이징 후 조회해도 applyPagination과 순서, total이 같아야 한다
+        for (Sort sort : new Sort[]{Sort.by(Sort.Direction.DESC, "age"), Sort.by("username")}) {
+            for (int page = 0; page < 3; page++) {
+                PageRequest pageRequest = PageRequest.of(page, 2, sort);
+                Page<Member> expected = memberTestRepository.applyPagination(condition, pageRequest);
+                Page<Member> result = memberTestRepository.applyIdPagination(condition, pageRequest);
+
+                Assertions.assertThat(result.getContent()).extracting("username")
+                        .containsExactlyElementsOf(expected.map(Member::getUsername).getContent());
+                Assertions.assertThat(result.getTotalElements()).isEqualTo(expected.getTotalElements()).isEqualTo(5);
+                Assertions.assertThat(result.getTotalPages()).isEqualTo(expected.getTotalPages());
+            }
+        }
+    }
+
+    @Test
+    public void applyIdPaginationTeamCondition(){
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+        PageRequest pageRequest = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "age"));
+
+        Page<Member> result = memberTestRepository.applyIdPagination(condition, pageRequest);
+
+        Assertions.assertThat(result.getContent()).extracting("username").containsExactly("member5", "member3");
+        Assertions.assertThat(result.getTotalElements()).isEqualTo(3);
+    }
+}
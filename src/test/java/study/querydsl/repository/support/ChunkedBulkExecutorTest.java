@@ -0,0 +1,187 @@
+package study.querydsl.repository.support;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import study.querydsl.entity.Member;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// chunk는 REQUIRES_NEW로 커밋되므로 테스트 트랜잭션(롤백)을 사용하지 않고 직접 정리한다
+@SpringBootTest
+class ChunkedBulkExecutorTest {
+
+    @Autowired
+    EntityManager em;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    ChunkedBulkExecutor chunkedBulkExecutor;
+    @Autowired
+    CountQueryCache countQueryCache;
+    @Autowired
+    DataVersion dataVersion;
+
+    @AfterEach
+    public void after() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                em.createQuery("delete from Member m where m.username like 'bulk%'").executeUpdate());
+    }
+
+    @Test
+    public void chunksAndProgress() {
+        List<long[]> ranges = new CopyOnWriteArrayList<>();
+        List<long[]> progress = new CopyOnWriteArrayList<>();
+        BulkOptions options = BulkOptions.builder()
+                .chunkSize(2)
+                .listener((completed, total, affected) -> progress.add(new long[]{completed, total, affected}))
+                .build();
+
+        //1 ~ 5 -> [1,3) [3,5) [5,6)
+        Thread caller = Thread.currentThread();
+        long affected = chunkedBulkExecutor.execute(Member.class, 1L, 5L, options, (fromId, toId) -> {
+            Assertions.assertThat(Thread.currentThread()).isSameAs(caller); // parallelism=1 이면 호출한 스레드에서 실행
+            ranges.add(new long[]{fromId, toId});
+            return toId - fromId;
+        });
+
+        Assertions.assertThat(affected).isEqualTo(5);
+        Assertions.assertThat(ranges).containsExactly(new long[]{1, 3}, new long[]{3, 5}, new long[]{5, 6});
+        Assertions.assertThat(progress).containsExactly(new long[]{1, 3, 2}, new long[]{2, 3, 4}, new long[]{3, 3, 5});
+    }
+
+    @Test
+    public void parallelChunks() {
+        AtomicInteger executed = new AtomicInteger();
+        BulkOptions options = BulkOptions.builder().chunkSize(10).parallelism(4).build();
+
+        long affected = chunkedBulkExecutor.execute(Member.class, 1L, 100L, options, (fromId, toId) -> {
+            executed.incrementAndGet();
+            return toId - fromId;
+        });
+
+        Assertions.assertThat(executed.get()).isEqualTo(10);
+        Assertions.assertThat(affected).isEqualTo(100);
+    }
+
+    @Test
+    public void noTarget() {
+        long affected = chunkedBulkExecutor.execute(Member.class, null, null, BulkOptions.defaults(), (fromId, toId) -> {
+            throw new IllegalStateException("실행되면 안 된다");
+        });
+
+        Assertions.assertThat(affected).isEqualTo(0);
+    }
+
+    @Test
+    public void chunkPerTransaction() {
+        AtomicInteger commits = new AtomicInteger();
+        BulkOptions options = BulkOptions.builder().chunkSize(2).build();
+
+        //호출한 쪽 트랜잭션이 끝나기 전에 chunk마다 커밋된다 (REQUIRES_NEW)
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            chunkedBulkExecutor.execute(Member.class, 1L, 6L, options, (fromId, toId) -> {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        commits.incrementAndGet();
+                    }
+                });
+                return 0;
+            });
+            Assertions.assertThat(commits.get()).isEqualTo(3);
+        });
+    }
+
+    @Test
+    public void failure() {
+        List<Long> completed = new CopyOnWriteArrayList<>();
+        AtomicInteger executed = new AtomicInteger();
+        BulkOptions options = BulkOptions.builder()
+                .chunkSize(1)
+                .listener((completedChunks, totalChunks, affectedRows) -> completed.add(completedChunks))
+                .build();
+        countQueryCache.get(Member.class, "key", () -> 10L);
+
+        //두 번째 chunk에서 실패하면 예외를 그대로 던지고 나머지 chunk는 실행하지 않는다
+        Assertions.assertThatThrownBy(() -> chunkedBulkExecutor.execute(Member.class, 1L, 5L, options, (fromId, toId) -> {
+            if (executed.incrementAndGet() == 2) {
+                throw new IllegalStateException("chunk 실패");
+            }
+            return 1;
+        })).isInstanceOf(IllegalStateException.class).hasMessage("chunk 실패");
+
+        Assertions.assertThat(executed.get()).isEqualTo(2);
+        Assertions.assertThat(completed).containsExactly(1L);
+        //이미 커밋된 chunk가 있으므로 실패해도 캐시는 비운다
+        Assertions.assertThat(countQueryCache.peek(Member.class, "key")).isEmpty();
+    }
+
+    @Test
+    public void parallelFailureStopsSubmitting() {
+        AtomicInteger executed = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        BulkOptions options = BulkOptions.builder().chunkSize(1).parallelism(2).build();
+
+        //id 범위가 넓어도 chunk를 미리 만들지 않고, 동시에 parallelism개까지만 실행하고, 실패하면 더 시작하지 않는다
+        Assertions.assertThatThrownBy(() -> chunkedBulkExecutor.execute(Member.class, 1L, 1_000_000_000L, options,
+                (fromId, toId) -> {
+                    executed.incrementAndGet();
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        if (fromId == 3) {
+                            throw new IllegalStateException("chunk 실패");
+                        }
+                        Thread.sleep(20);
+                        return 1;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return 0;
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                })).isInstanceOf(IllegalStateException.class).hasMessage("chunk 실패");
+
+        Assertions.assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+        Assertions.assertThat(executed.get()).isLessThanOrEqualTo(5);
+    }
+
+    @Test
+    public void evict() {
+        countQueryCache.get(Member.class, "key", () -> 10L);
+        long version = dataVersion.current();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Member member = new Member("bulk1", 10);
+            em.persist(member);
+            em.flush();
+
+            chunkedBulkExecutor.execute(Member.class, member.getId(), member.getId(), BulkOptions.defaults(),
+                    (fromId, toId) -> 0);
+
+            //bulk 쿼리로 값이 바뀌었을 수 있으므로 호출한 쪽 영속성 컨텍스트에서 제거된다
+            Assertions.assertThat(em.contains(member)).isFalse();
+        });
+
+        Assertions.assertThat(countQueryCache.peek(Member.class, "key")).isEmpty();
+        Assertions.assertThat(dataVersion.current()).isNotEqualTo(version);
+    }
+
+    @Test
+    public void invalidOptions() {
+        Assertions.assertThatThrownBy(() -> BulkOptions.builder().chunkSize(0).build())
+                .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(() -> BulkOptions.builder().parallelism(0).build())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
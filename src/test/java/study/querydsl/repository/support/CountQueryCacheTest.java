@@ -0,0 +1,35 @@
+package study.querydsl.repository.support;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 트랜잭션 없이 CountQueryCache만 확인
+class CountQueryCacheTest {
+
+    CountQueryCache countQueryCache = new CountQueryCache(true, 30, 100);
+    AtomicInteger counts = new AtomicInteger();
+
+    @Test
+    public void cached() {
+        Assertions.assertThat(countQueryCache.get(Object.class, "key", () -> counts.incrementAndGet() * 10L)).isEqualTo(10);
+        Assertions.assertThat(countQueryCache.get(Object.class, "key", () -> counts.incrementAndGet() * 10L)).isEqualTo(10);
+        Assertions.assertThat(counts.get()).isEqualTo(1);
+
+        countQueryCache.invalidateAll();
+        Assertions.assertThat(countQueryCache.get(Object.class, "key", () -> counts.incrementAndGet() * 10L)).isEqualTo(20);
+    }
+
+    @Test
+    public void invalidatedWhileCounting() {
+        //count 쿼리 실행 중에 데이터가 바뀌면 그 결과는 캐시에 넣지 않는다
+        long total = countQueryCache.get(Object.class, "key", () -> {
+            countQueryCache.invalidateAll();
+            return 10L;
+        });
+
+        Assertions.assertThat(total).isEqualTo(10);
+        Assertions.assertThat(countQueryCache.peek(Object.class, "key")).isEmpty();
+    }
+}
@@ -0,0 +1,160 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.OptionalLong;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+// 스프링 컨텍스트 없이 PagingQueryExecutor만 확인 (count 쿼리의 읽기 전용 트랜잭션은 아무것도 하지 않는 트랜잭션 매니저로 대신한다)
+class PagingQueryExecutorTest {
+
+    PagingQueryExecutor executor;
+
+    @BeforeEach
+    public void before() {
+        executor = parallelExecutor(2);
+    }
+
+    @AfterEach
+    public void after() {
+        executor.destroy();
+    }
+
+    @Test
+    public void parallelCount() {
+        AtomicReference<String> countThread = new AtomicReference<>();
+
+        //중간 페이지는 count가 필요하다
+        Page<String> page = executor.getPage(() -> Arrays.asList("a", "b"), PageRequest.of(1, 2), () -> {
+            countThread.set(Thread.currentThread().getName());
+            return 10L;
+        });
+
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(10);
+        Assertions.assertThat(page.getContent()).containsExactly("a", "b");
+        Assertions.assertThat(countThread.get()).startsWith("paging-count-");
+    }
+
+    @Test
+    public void parallelCountNotNeeded() throws Exception {
+        executor.destroy();
+        executor = parallelExecutor(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger unusedCounts = new AtomicInteger();
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            //하나뿐인 count 스레드를 다른 요청의 count로 막아 두면 이번 요청의 count는 시작하지 못하고 대기한다
+            Future<Page<String>> other = caller.submit(() -> executor.getPage(() -> Arrays.asList("a", "b"),
+                    PageRequest.of(1, 2), () -> {
+                        blocked.countDown();
+                        await(release);
+                        return 10L;
+                    }));
+            Assertions.assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+
+            //첫 페이지가 pageSize보다 작으면 count 결과를 기다리지 않고, 시작하지 않은 count는 취소한다
+            Page<String> page = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> executor.getPage(
+                    () -> Arrays.asList("a"), PageRequest.of(0, 2), () -> {
+                        unusedCounts.incrementAndGet();
+                        return 100L;
+                    }));
+            Assertions.assertThat(page.getTotalElements()).isEqualTo(1);
+
+            release.countDown();
+            Assertions.assertThat(other.get(5, TimeUnit.SECONDS).getTotalElements()).isEqualTo(10);
+            //취소되지 않았다면 같은 count 스레드에서 다음 count보다 먼저 실행되었을 것이다
+            Assertions.assertThat(executor.getPage(() -> Arrays.asList("a", "b"), PageRequest.of(1, 2), () -> 7L)
+                    .getTotalElements()).isEqualTo(7);
+            Assertions.assertThat(unusedCounts.get()).isZero();
+        } finally {
+            release.countDown();
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    public void parallelCountContentFailure() {
+        //content 쿼리가 실패하면 예외를 그대로 전달한다
+        Assertions.assertThatThrownBy(() -> executor.<String>getPage(() -> {
+            throw new IllegalStateException("content");
+        }, PageRequest.of(1, 2), () -> 10L)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void estimatedPagePastEnd() {
+        //content가 없고 offset > 0 이면 count로 정확한 total을 구한다
+        EstimatedPage<String> page = executor.getEstimatedPage(Collections::emptyList, PageRequest.of(10, 2),
+                OptionalLong.empty(), () -> 5L);
+
+        Assertions.assertThat(page.getContent()).isEmpty();
+        Assertions.assertThat(page.isTotalExact()).isTrue();
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(5);
+        Assertions.assertThat(page.getTotalPages()).isEqualTo(3);
+    }
+
+    @Test
+    public void estimatedPageWithoutCount() {
+        AtomicInteger counts = new AtomicInteger();
+
+        //다음 페이지가 있으면 count 없이 하한값
+        EstimatedPage<String> page = executor.getEstimatedPage(() -> Arrays.asList("a", "b", "c"), PageRequest.of(1, 2),
+                OptionalLong.empty(), () -> counts.incrementAndGet());
+
+        Assertions.assertThat(page.getContent()).containsExactly("a", "b");
+        Assertions.assertThat(page.isTotalExact()).isFalse();
+        Assertions.assertThat(page.getTotalElements()).isEqualTo(5);
+        Assertions.assertThat(counts.get()).isEqualTo(0);
+    }
+
+    private static PagingQueryExecutor parallelExecutor(int countThreads) {
+        return new PagingQueryExecutor(true, countThreads, false,
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class), new NoOpTransactionManager());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class NoOpTransactionManager implements PlatformTransactionManager {
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+}
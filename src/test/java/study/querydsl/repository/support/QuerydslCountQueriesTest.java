@@ -0,0 +1,80 @@
+package study.querydsl.repository.support;
+
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+import study.querydsl.entity.Member;
+import study.querydsl.entity.Team;
+
+import javax.persistence.EntityManager;
+
+import static study.querydsl.entity.QMember.member;
+import static study.querydsl.entity.QTeam.team;
+
+@SpringBootTest
+@Transactional
+class QuerydslCountQueriesTest {
+
+    @Autowired
+    EntityManager em;
+
+    JPAQueryFactory queryFactory;
+
+    @BeforeEach
+    public void before() {
+        queryFactory = new JPAQueryFactory(em);
+        Team teamA = new Team("countTeamA");
+        Team teamB = new Team("countTeamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("count1", 10, teamA));
+        em.persist(new Member("count2", 20, teamA));
+        em.persist(new Member("count3", 30, teamB));
+        em.persist(new Member("count4", 40)); // 팀 없음
+    }
+
+    @Test
+    public void count() {
+        JPAQuery<Member> query = queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team)
+                .where(member.username.startsWith("count"))
+                .orderBy(member.age.desc())
+                .offset(1)
+                .limit(2);
+
+        Assertions.assertThat(QuerydslCountQueries.count(em, query)).isEqualTo(4);
+    }
+
+    @Test
+    public void countGroups() {
+        JPAQuery<String> query = queryFactory
+                .select(team.name)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.username.startsWith("count"))
+                .groupBy(team.name);
+
+        //teamA, teamB, 팀 없음(null) 3개 그룹
+        Assertions.assertThat(QuerydslCountQueries.count(em, query)).isEqualTo(3);
+    }
+
+    @Test
+    public void countGroupsHaving() {
+        JPAQuery<String> query = queryFactory
+                .select(team.name)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.username.startsWith("count"))
+                .groupBy(team.name)
+                .having(member.count().gt(1));
+
+        Assertions.assertThat(QuerydslCountQueries.count(em, query)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,82 @@
+package study.querydsl.repository.support;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 트랜잭션 없이 SearchResultCache, DataVersion만 확인
+class SearchResultCacheTest {
+
+    DataVersion dataVersion = new DataVersion();
+    SearchResultCache searchResultCache = new SearchResultCache(true, 60, 100, dataVersion);
+    AtomicInteger searches = new AtomicInteger();
+
+    @AfterEach
+    public void after() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    public void cachedByVersion() {
+        Assertions.assertThat(search("key")).isEqualTo(1);
+        Assertions.assertThat(search("key")).isEqualTo(1);
+        Assertions.assertThat(search("other")).isEqualTo(2);
+
+        //버전이 바뀌면 이전 결과는 사용하지 않는다
+        dataVersion.bump();
+        Assertions.assertThat(search("key")).isEqualTo(3);
+        Assertions.assertThat(search("key")).isEqualTo(3);
+    }
+
+    @Test
+    public void bypassedInReadWriteTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        Assertions.assertThat(search("key")).isEqualTo(1);
+        Assertions.assertThat(search("key")).isEqualTo(2);
+
+        //읽기 전용 트랜잭션에서는 캐시를 사용한다
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        Assertions.assertThat(search("key")).isEqualTo(3);
+        Assertions.assertThat(search("key")).isEqualTo(3);
+    }
+
+    @Test
+    public void bumpOncePerTransaction() {
+        long version = dataVersion.current();
+        TransactionSynchronizationManager.initSynchronization();
+
+        dataVersion.bump();
+        dataVersion.bump();
+        dataVersion.bump();
+
+        //트랜잭션이 끝나기 전에는 버전이 그대로, 끝나면 한 번만 증가
+        Assertions.assertThat(TransactionSynchronizationManager.getSynchronizations()).hasSize(1);
+        Assertions.assertThat(dataVersion.current()).isEqualTo(version);
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                TransactionSynchronization.STATUS_COMMITTED);
+        Assertions.assertThat(dataVersion.current()).isEqualTo(version + 1);
+    }
+
+    @Test
+    public void tagDiffersAfterRestart() {
+        //버전 값이 같아도 인스턴스(재시작)마다 ETag가 다르다
+        DataVersion restarted = new DataVersion();
+
+        Assertions.assertThat(restarted.current()).isEqualTo(dataVersion.current());
+        Assertions.assertThat(restarted.tag()).isNotEqualTo(dataVersion.tag());
+    }
+
+    private int search(String key) {
+        return searchResultCache.get("search", key, searches::incrementAndGet);
+    }
+}
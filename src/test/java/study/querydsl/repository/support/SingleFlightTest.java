@@ -0,0 +1,218 @@
+package study.querydsl.repository.support;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+class SingleFlightTest {
+
+    static final int CALLERS = 8;
+
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    DataVersion dataVersion = new DataVersion();
+    SingleFlight singleFlight = singleFlight(5000);
+    ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCallsExecuteOnce() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Object result = new Object();
+
+        List<Future<Object>> futures = callConcurrently(() -> {
+            executions.incrementAndGet();
+            started.countDown();
+            await(release);
+            return result;
+        }, started);
+        release.countDown();
+
+        for (Future<Object> future : futures) {
+            Assertions.assertThat(future.get(5, TimeUnit.SECONDS)).isSameAs(result);
+        }
+        Assertions.assertThat(executions.get()).isEqualTo(1);
+        Assertions.assertThat(calls("executed")).isEqualTo(1);
+        Assertions.assertThat(calls("coalesced")).isEqualTo(CALLERS - 1);
+    }
+
+    @Test
+    public void failurePropagatesToWaiters() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("조회 실패");
+
+        List<Future<Object>> futures = callConcurrently(() -> {
+            executions.incrementAndGet();
+            started.countDown();
+            await(release);
+            throw failure;
+        }, started);
+        release.countDown();
+
+        //기다리던 요청도 같은 예외로 실패한다
+        for (Future<Object> future : futures) {
+            Assertions.assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseReference(failure);
+        }
+        Assertions.assertThat(executions.get()).isEqualTo(1);
+
+        //실패한 조회는 제거되므로 다음 호출은 다시 실행된다
+        Object retry = singleFlight.execute("search", "key", () -> {
+            executions.incrementAndGet();
+            return "retry";
+        });
+        Assertions.assertThat(retry).isEqualTo("retry");
+        Assertions.assertThat(executions.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void waitersStopWaitingAfterTimeout() throws Exception {
+        singleFlight = singleFlight(100);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Object> leader = executor.submit(() -> singleFlight.execute("search", "key", () -> {
+            started.countDown();
+            await(release); // 멈춘 조회
+            return "leader";
+        }));
+        Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        //먼저 실행한 조회가 끝나지 않아도 timeout 후에는 직접 조회한다
+        Object waiter = singleFlight.execute("search", "key", () -> "waiter");
+        Assertions.assertThat(waiter).isEqualTo("waiter");
+        Assertions.assertThat(calls("timeout")).isEqualTo(1);
+
+        release.countDown();
+        Assertions.assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("leader");
+    }
+
+    @Test
+    public void coalescedBehindResultCache() throws Exception {
+        //결과 캐시에 없는 같은 조회가 동시에 들어와도 캐시가 막지 않고 SingleFlight에서 한 번으로 합쳐진다
+        SearchResultCache searchResultCache = new SearchResultCache(true, 60, 100, dataVersion);
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Object result = new Object();
+
+        List<Future<Object>> futures = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(executor.submit(() -> searchResultCache.get("search", "key",
+                    () -> singleFlight.execute("search", "key", () -> {
+                        executions.incrementAndGet();
+                        started.countDown();
+                        await(release);
+                        return result;
+                    }))));
+        }
+        Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (calls("coalesced") < CALLERS - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+
+        for (Future<Object> future : futures) {
+            Assertions.assertThat(future.get(5, TimeUnit.SECONDS)).isSameAs(result);
+        }
+        Assertions.assertThat(executions.get()).isEqualTo(1);
+        Assertions.assertThat(calls("coalesced")).isEqualTo(CALLERS - 1);
+    }
+
+    @Test
+    public void notCoalescedAcrossDataVersions() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Object> leader = executor.submit(() -> singleFlight.execute("search", "key", () -> {
+            executions.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "before";
+        }));
+        Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        //조회 중에 데이터가 바뀌면 다음 요청은 실행 중인 조회에 합쳐지지 않고 새로 조회한다
+        dataVersion.bump();
+        Object after = singleFlight.execute("search", "key", () -> {
+            executions.incrementAndGet();
+            return "after";
+        });
+        Assertions.assertThat(after).isEqualTo("after");
+        Assertions.assertThat(calls("coalesced")).isZero();
+        Assertions.assertThat(calls("executed")).isEqualTo(2);
+
+        release.countDown();
+        Assertions.assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("before");
+        Assertions.assertThat(executions.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void differentKeysAreNotCoalesced() {
+        AtomicInteger executions = new AtomicInteger();
+
+        singleFlight.execute("search", "key1", executions::incrementAndGet);
+        singleFlight.execute("search", "key2", executions::incrementAndGet);
+        singleFlight.execute("searchPageSimple", "key1", executions::incrementAndGet);
+
+        Assertions.assertThat(executions.get()).isEqualTo(3);
+    }
+
+    // 첫 호출이 실행을 시작한 뒤 나머지를 호출하고, 나머지가 모두 기다리기 시작할 때까지 대기
+    private List<Future<Object>> callConcurrently(Supplier<Object> call, CountDownLatch started) throws InterruptedException {
+        List<Future<Object>> futures = new ArrayList<>();
+        futures.add(executor.submit(() -> singleFlight.execute("search", "key", call)));
+        Assertions.assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        for (int i = 1; i < CALLERS; i++) {
+            futures.add(executor.submit(() -> singleFlight.execute("search", "key", call)));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (calls("coalesced") < CALLERS - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return futures;
+    }
+
+    private SingleFlight singleFlight(long waitTimeoutMillis) {
+        return new SingleFlight(true, waitTimeoutMillis, dataVersion,
+                new StaticListableBeanFactory(Collections.singletonMap("meterRegistry", meterRegistry))
+                        .getBeanProvider(MeterRegistry.class));
+    }
+
+    private double calls(String result) {
+        return meterRegistry.counter("repository.search.calls", "operation", "search", "result", result).count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}